@@ -0,0 +1,45 @@
+package com.codepath.flickster;
+
+import android.app.Application;
+
+import com.codepath.flickster.images.BitmapPool;
+import com.codepath.flickster.images.MeteredDownloader;
+import com.codepath.flickster.images.PoolableRequestHandler;
+import com.codepath.flickster.metrics.Metrics;
+import com.squareup.picasso.Picasso;
+
+/**
+ * Application wide setup and memory handling.
+ *
+ * @author yvastavaus.
+ */
+public class FlicksterApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Must be set before the first Picasso.with() call.
+        MeteredDownloader downloader = new MeteredDownloader(this);
+        Picasso.setSingletonInstance(new Picasso.Builder(this)
+                .downloader(downloader)
+                .addRequestHandler(new PoolableRequestHandler(downloader))
+                .build());
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BitmapPool bitmapPool = BitmapPool.getInstance();
+        // State of the pool right before it gives memory back.
+        Metrics metrics = Metrics.getMetrics();
+        metrics.record("bitmap_pool.bytes", bitmapPool.getSizeBytes());
+        metrics.record("bitmap_pool.hit_rate_percent", Math.round(bitmapPool.getHitRate() * 100));
+        bitmapPool.trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        BitmapPool.getInstance().trimMemory(TRIM_MEMORY_COMPLETE);
+    }
+}
@@ -3,6 +3,8 @@ package com.codepath.flickster.activities;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.IntDef;
 import android.support.design.widget.AppBarLayout;
 import android.support.design.widget.CollapsingToolbarLayout;
@@ -17,12 +19,18 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.codepath.flickster.R;
+import com.codepath.flickster.concurrent.StageExecutor;
+import com.codepath.flickster.display.MovieDisplay;
+import com.codepath.flickster.display.MovieDisplayBuilder;
+import com.codepath.flickster.images.MovieImageRequests;
 import com.codepath.flickster.model.Movie;
 import com.codepath.flickster.model.Video;
+import com.codepath.flickster.network.Cancellable;
 import com.codepath.flickster.network.NetworkManager;
-import com.codepath.flickster.utils.UiUtils;
+import com.codepath.flickster.network.RequestScope;
+import com.codepath.flickster.storage.CatalogStore;
+import com.codepath.flickster.storage.MovieRepository;
 import com.squareup.picasso.Callback;
-import com.squareup.picasso.Picasso;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -42,9 +50,14 @@ public class DetailsActivity extends AppCompatActivity {
 
     private static final String TAG = DetailsActivity.class.getSimpleName();
 
-    public static final String EXTRA_MOVIE = TAG + ".EXTRA_MOVIE";
+    public static final String EXTRA_MOVIE_ID = TAG + ".EXTRA_MOVIE_ID";
     private static final String YOUTUBE_LINK = "https://www.youtube.com/watch?v=%1$s";
+    private int movieId;
+    private MovieDisplay display;
     private Movie movie;
+    // Ends with the screen, the callbacks of its requests don't run after it.
+    private final RequestScope requestScope = new RequestScope();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     @BindView(R.id.toolbar)
     Toolbar toolbar;
@@ -89,21 +102,66 @@ public class DetailsActivity extends AppCompatActivity {
         setContentView(R.layout.activity_details);
         ButterKnife.bind(this);
         if(savedInstanceState != null) {
-            movie = savedInstanceState.getParcelable(EXTRA_MOVIE);
-        } else {
-            if(getIntent() != null && getIntent().hasExtra(EXTRA_MOVIE)) {
-                movie = getIntent().getParcelableExtra(EXTRA_MOVIE);
-            }
+            movieId = savedInstanceState.getInt(EXTRA_MOVIE_ID);
+        } else if(getIntent() != null) {
+            movieId = getIntent().getIntExtra(EXTRA_MOVIE_ID, 0);
         }
         initToolbar();
-        populateMovieDetails();
+        loadMovie();
+    }
+
+    /**
+     * Rehydrates the movie from its id, straight from memory unless the
+     * process has been restarted since the list was loaded.
+     */
+    private void loadMovie() {
+        MovieRepository.getMovieRepository(this).loadMovie(movieId, new CatalogStore.MovieCallback() {
+            @Override
+            public void onLoaded(Movie loaded) {
+                if(requestScope.isCancelled()) {
+                    return;
+                }
+                if(loaded == null) {
+                    Toast.makeText(DetailsActivity.this, getString(R.string.server_error), Toast.LENGTH_SHORT).show();
+                    finish();
+                    return;
+                }
+                buildDisplay(loaded);
+            }
+        });
+    }
+
+    /**
+     * Builds the display of the movie off the main thread, then binds it on
+     * the main thread. Runs on {@link StageExecutor#PARSE} which never drops
+     * a task, unlike {@link StageExecutor#DISPLAY} when full.
+     */
+    private void buildDisplay(final Movie loaded) {
+        final MovieDisplayBuilder displayBuilder = new MovieDisplayBuilder(this);
+        StageExecutor.PARSE.execute(new Runnable() {
+            @Override
+            public void run() {
+                final MovieDisplay built = displayBuilder.build(loaded);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(requestScope.isCancelled()) {
+                            return;
+                        }
+                        movie = loaded;
+                        display = built;
+                        populateMovieDetails();
+                    }
+                });
+            }
+        });
     }
 
     private void populateMovieDetails() {
-        ratingBar.setRating((float)movie.getVoteAverage()/2);
-        title.setText(movie.getOriginalTitle());
-        overview.setText(movie.getOverView());
-        releaseDate.setText(UiUtils.getFormattedDate(movie.getReleaseDate()));
+        ratingBar.setRating(display.getRating());
+        title.setText(display.getTitle());
+        overview.setText(display.getOverview());
+        releaseDate.setText(display.getFormattedReleaseDate());
         fetchBannerMovieImage(bannerImage, play, movie);
     }
 
@@ -126,13 +184,13 @@ public class DetailsActivity extends AppCompatActivity {
             public void onError() {}
         };
 
-        Picasso.with(this).load(movie.getBannerPoster()).placeholder(R.drawable.poster_banner).into(movieImage, callback);
+        new MovieImageRequests(this).hero(movie).placeholder(R.drawable.poster_banner).into(movieImage, callback);
     }
 
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putParcelable(EXTRA_MOVIE, movie);
+        outState.putInt(EXTRA_MOVIE_ID, movieId);
     }
 
     private void initToolbar() {
@@ -161,7 +219,7 @@ public class DetailsActivity extends AppCompatActivity {
                 } else if (Math.abs(i) >= appBarLayout.getTotalScrollRange()) {
                     if (mCurrentState != COLLAPSED) {
                         // Collapsed
-                        collapsingToolbar.setTitle(movie.getOriginalTitle());
+                        collapsingToolbar.setTitle(movie != null ? movie.getOriginalTitle() : "");
                         title.setVisibility(View.INVISIBLE);
                         playTrailerFab.show();
                     }
@@ -181,17 +239,21 @@ public class DetailsActivity extends AppCompatActivity {
     public  void onPlayTrailerClicked() {
         // Trigger youtube video if it's a bannerImage type.
         Intent intent = new Intent(DetailsActivity.this, VideoActivity.class);
-        intent.putExtra(VideoActivity.EXTRA_VIDEO_ID, movie.getId());
+        intent.putExtra(VideoActivity.EXTRA_VIDEO_ID, movieId);
         ActivityCompat.startActivity(DetailsActivity.this, intent, null);
     }
 
     @OnClick(R.id.share)
     public void onShareClicked() {
+        if(movie == null) {
+            return;
+        }
         // Make a network call
         NetworkManager networkManager = NetworkManager.getNetworkManager();
-        networkManager.getVideoLink(movie.getId(), new NetworkManager.VideoRequestCallback() {
+        ShareCallback callback = new ShareCallback() {
             @Override
             public void onSuccess(ArrayList<Video> videoList) {
+                requestScope.remove(handle);
                 if(videoList.size() > 0) {
                     Intent share = new Intent(android.content.Intent.ACTION_SEND);
                     share.setType("text/plain");
@@ -202,8 +264,26 @@ public class DetailsActivity extends AppCompatActivity {
             }
             @Override
             public void onFailure() {
+                requestScope.remove(handle);
                 Toast.makeText(DetailsActivity.this, getString(R.string.server_error), Toast.LENGTH_SHORT).show();
             }
-        });
+        };
+        // Cached videos are delivered right away, the handle is then done and not kept.
+        callback.handle = requestScope.add(networkManager.getVideoLink(movie.getId(), callback));
+    }
+
+    private static abstract class ShareCallback implements NetworkManager.VideoRequestCallback {
+        Cancellable handle;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if(isChangingConfigurations()) {
+            // The re-created screen joins the requests in flight.
+            requestScope.cancelAfterRelaunch();
+        } else {
+            requestScope.cancel();
+        }
     }
 }
@@ -3,21 +3,44 @@ package com.codepath.flickster.activities;
 import android.content.Intent;
 import android.graphics.Rect;
 import android.os.Bundle;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.support.design.widget.TabLayout;
 import android.support.v4.app.ActivityCompat;
+import android.support.v4.view.MenuItemCompat;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.support.v7.widget.Toolbar;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 
+import com.codepath.flickster.BuildConfig;
 import com.codepath.flickster.R;
 import com.codepath.flickster.adapters.MovieAdapter;
-import com.codepath.flickster.model.Movie;
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.images.ImagePrefetcher;
+import com.codepath.flickster.images.MovieImageRequests;
+import com.codepath.flickster.images.RowImagePauser;
+import com.codepath.flickster.metrics.Metrics;
+import com.codepath.flickster.model.Feeds;
+import com.codepath.flickster.network.FeedRefresher;
+import com.codepath.flickster.network.MoviePager;
 import com.codepath.flickster.network.NetworkManager;
+import com.codepath.flickster.network.RequestScheduler;
+import com.codepath.flickster.network.RequestScope;
+import com.codepath.flickster.network.TrailerPrefetcher;
+import com.codepath.flickster.storage.CatalogStore;
+import com.codepath.flickster.storage.MovieRepository;
 import com.codepath.flickster.utils.DividerItemDecoration;
+import com.codepath.flickster.utils.EndlessScrollListener;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -27,13 +50,23 @@ import butterknife.ButterKnife;
  *
  * @author  Yogesh Shrivastava
  */
-public class FlicksterHomeActivity extends AppCompatActivity implements MovieAdapter.OnItemClickListener, MovieAdapter.OnPlayButtonListener {
+public class FlicksterHomeActivity extends AppCompatActivity implements MovieAdapter.OnItemClickListener, MovieAdapter.OnPlayButtonListener, MoviePager.Listener {
 
-    private static final String EXTRA_MOVIE_LIST = FlicksterHomeActivity.class.getSimpleName() + ".EXTRA_MOVIE_LIST";
+    private static final String EXTRA_LAYOUT_STATE = FlicksterHomeActivity.class.getSimpleName() + ".EXTRA_LAYOUT_STATE";
+    private static final String EXTRA_QUERY = FlicksterHomeActivity.class.getSimpleName() + ".EXTRA_QUERY";
+    private static final String EXTRA_FEED = FlicksterHomeActivity.class.getSimpleName() + ".EXTRA_FEED";
+    // Feeds refreshed at once, the others wait for one of them to complete.
+    private static final int MAX_PARALLEL_FEEDS = 2;
+
+    // The launch metric is recorded by the first screen of the process only.
+    private static boolean isFirstRowRecorded;
 
     @BindView(R.id.toolbar)
     Toolbar toolbar;
 
+    @BindView(R.id.feedTabs)
+    TabLayout feedTabs;
+
     @BindView(R.id.movieRecyclerView)
     RecyclerView movieRecyclerView;
 
@@ -41,90 +74,365 @@ public class FlicksterHomeActivity extends AppCompatActivity implements MovieAda
     SwipeRefreshLayout swipeRefreshLayout;
 
     private MovieAdapter adapter;
-    private NetworkManager networkManager;
-    private ArrayList<Movie> moviesList;
+    private LinearLayoutManager layoutManager;
+    private MovieImageRequests imageRequests;
+    private ImagePrefetcher imagePrefetcher;
+    private TrailerPrefetcher trailerPrefetcher;
+    private FeedRefresher feedRefresher;
+    private MovieRepository movieRepository;
+    // One pager, and list, per feed in the order of the tabs.
+    private LinkedHashMap<String, MoviePager> pagers;
+    // Ends with the screen, guards the callbacks of the disk loads.
+    private final RequestScope requestScope = new RequestScope();
+    // Scroll position of the feeds not on screen.
+    private final HashMap<String, Parcelable> layoutStates = new HashMap<>();
+    private @Feeds.Feed String currentFeed = Feeds.NOW_PLAYING;
+    private long createTime;
+
+    // Records launch.first_row, from the creation of the screen until the first rows are laid out.
+    private final Runnable recordFirstRow = new Runnable() {
+        @Override
+        public void run() {
+            if(isFirstRowRecorded || adapter.getItemCount() == 0) {
+                return;
+            }
+            isFirstRowRecorded = true;
+            // Runs after the layout pass triggered by the new rows.
+            movieRecyclerView.post(new Runnable() {
+                @Override
+                public void run() {
+                    Metrics.getMetrics().record("launch.first_row", SystemClock.elapsedRealtime() - createTime);
+                }
+            });
+        }
+    };
 
     final SwipeRefreshLayout.OnRefreshListener refreshListener = new SwipeRefreshLayout.OnRefreshListener() {
         @Override
         public void onRefresh() {
-            initiateRequest();
+            refreshAll();
         }
     };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createTime = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_flickster_home);
         ButterKnife.bind(this);
         init(savedInstanceState);
     }
 
     private void init(Bundle savedInstanceState) {
-        boolean isFetchOnLoad = false;
-        if(savedInstanceState != null) {
-            moviesList = savedInstanceState.getParcelableArrayList(EXTRA_MOVIE_LIST);
-        } else {
-            moviesList = new ArrayList<>();
-            isFetchOnLoad = true;
-        }
         setSupportActionBar(toolbar);
         getSupportActionBar().setDisplayShowHomeEnabled(true);
         getSupportActionBar().setIcon(R.mipmap.ic_launcher);
 
         // Setup Recycler view
-        adapter = new MovieAdapter(this, moviesList);
+        imageRequests = new MovieImageRequests(this);
+        adapter = new MovieAdapter(this, imageRequests);
         movieRecyclerView.setAdapter(adapter);
         adapter.setOnItemClickListener(this);
         adapter.setPlayClickListener(this);
-        movieRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        layoutManager = new LinearLayoutManager(this);
+        movieRecyclerView.setLayoutManager(layoutManager);
         float offsetPx = getResources().getDimension(R.dimen.bottom_offset_dp);
         BottomOffsetDecoration bottomOffsetDecoration = new BottomOffsetDecoration((int) offsetPx);
         RecyclerView.ItemDecoration itemDecoration = new DividerItemDecoration(this, DividerItemDecoration.VERTICAL_LIST);
         movieRecyclerView.addItemDecoration(bottomOffsetDecoration);
         movieRecyclerView.addItemDecoration(itemDecoration);
 
-        // Network manager
-        networkManager = NetworkManager.getNetworkManager();
+        // Warm up the images of the rows coming next.
+        imagePrefetcher = new ImagePrefetcher(adapter, layoutManager, imageRequests);
+        movieRecyclerView.addOnScrollListener(imagePrefetcher);
+
+        // Hold back the images of the rows flung past.
+        movieRecyclerView.addOnScrollListener(new RowImagePauser(imageRequests));
+
+        // Look up the trailers of the banners on screen before play is tapped.
+        trailerPrefetcher = new TrailerPrefetcher(NetworkManager.getNetworkManager(), adapter, layoutManager);
+        movieRecyclerView.addOnScrollListener(trailerPrefetcher);
+
+        // Pagers and refreshes in flight outlive a configuration change, the
+        // re-created screen attaches to them instead of starting them again.
+        RetainedFeeds retained = (RetainedFeeds) getLastCustomNonConfigurationInstance();
+        if(retained != null) {
+            pagers = retained.pagers;
+            feedRefresher = retained.feedRefresher;
+        } else {
+            pagers = new LinkedHashMap<>();
+            for (String feed : Feeds.ALL) {
+                pagers.put(feed, new MoviePager(NetworkManager.getNetworkManager(), feed, new ArrayList<MovieRecord>()));
+            }
+            // Refreshes the feeds a few at a time.
+            feedRefresher = new FeedRefresher(MAX_PARALLEL_FEEDS);
+        }
+
+        // Pages through the feed on screen, fetching the next page ahead of reaching the end.
+        for (MoviePager pager : pagers.values()) {
+            pager.setListener(this);
+        }
+        int visibleThreshold = getResources().getInteger(R.integer.pagination_visible_threshold);
+        movieRecyclerView.addOnScrollListener(new EndlessScrollListener(layoutManager, visibleThreshold) {
+            @Override
+            public void onLoadMore() {
+                pagers.get(currentFeed).loadNextPage();
+            }
+        });
+
+        // The spinner spins until every refresh is done.
+        feedRefresher.setListener(new FeedRefresher.Listener() {
+            @Override
+            public void onIdle() {
+                swipeRefreshLayout.setRefreshing(false);
+            }
+        });
 
         // Swipe to refresh data.
         swipeRefreshLayout.setOnRefreshListener(refreshListener);
 
-        // Only load data if necessary.
-        if(isFetchOnLoad) {
-            initiateRequest();
+        // Set before the list is loaded so a restored search filters it straight away.
+        Parcelable layoutState = null;
+        if(savedInstanceState != null) {
+            adapter.setQuery(savedInstanceState.getString(EXTRA_QUERY));
+            String feed = savedInstanceState.getString(EXTRA_FEED);
+            if(pagers.containsKey(feed)) {
+                currentFeed = feed;
+            }
+            layoutState = savedInstanceState.getParcelable(EXTRA_LAYOUT_STATE);
+        }
+        initTabs();
+        updatePriorities();
+
+        movieRepository = MovieRepository.getMovieRepository(this);
+        if(!feedRefresher.isIdle()) {
+            swipeRefreshLayout.setRefreshing(true);
+        }
+        for (MoviePager pager : pagers.values()) {
+            Parcelable feedLayoutState = pager.getFeed().equals(currentFeed) ? layoutState : null;
+            if(!pager.getMovies().isEmpty()) {
+                // Kept across the configuration change.
+                show(pager, feedLayoutState);
+            } else if(!pager.isLoading()) {
+                loadFromRepository(pager, feedLayoutState);
+            }
         }
     }
 
     @Override
-    public void onSaveInstanceState(Bundle outState) {
-        outState.putParcelableArrayList(EXTRA_MOVIE_LIST, moviesList);
+    public Object onRetainCustomNonConfigurationInstance() {
+        return new RetainedFeeds(pagers, feedRefresher);
     }
 
     /**
-     * Queries backend for now showing movies and update the list accordingly.
+     * One tab per feed, selecting one swaps the list for its movies.
      */
-    private void initiateRequest() {
-        swipeRefreshLayout.setRefreshing(true);
-        networkManager.getNowShowingMovies(new NetworkManager.RequestCallback() {
+    private void initTabs() {
+        for (String feed : Feeds.ALL) {
+            feedTabs.addTab(feedTabs.newTab().setText(Feeds.getTitle(feed)).setTag(feed), feed.equals(currentFeed));
+        }
+        feedTabs.setOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
-            public void onSuccess(ArrayList<Movie> list) {
-                moviesList.addAll(list);
-                adapter.notifyDataSetChanged();
-                swipeRefreshLayout.setRefreshing(false);
+            public void onTabSelected(TabLayout.Tab tab) {
+                showFeed((String) tab.getTag());
             }
 
             @Override
-            public void onFailure() {
-                swipeRefreshLayout.setRefreshing(false);
+            public void onTabUnselected(TabLayout.Tab tab) {
+            }
+
+            @Override
+            public void onTabReselected(TabLayout.Tab tab) {
+                movieRecyclerView.smoothScrollToPosition(0);
+            }
+        });
+    }
+
+    private void showFeed(@Feeds.Feed String feed) {
+        if(feed.equals(currentFeed)) {
+            return;
+        }
+        layoutStates.put(currentFeed, layoutManager.onSaveInstanceState());
+        currentFeed = feed;
+        updatePriorities();
+        final Parcelable layoutState = layoutStates.remove(feed);
+        adapter.submitList(pagers.get(feed).getMovies(), new Runnable() {
+            @Override
+            public void run() {
+                if(layoutState != null) {
+                    layoutManager.onRestoreInstanceState(layoutState);
+                } else {
+                    layoutManager.scrollToPosition(0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the movies already loaded, in memory or on disk, right away and
+     * only goes to the network if there are none or they are older than their
+     * time to live.
+     *
+     * @param layoutState scroll position to put back once the movies are shown, if any.
+     */
+    private void loadFromRepository(final MoviePager pager, final Parcelable layoutState) {
+        movieRepository.loadList(pager.getFeed(), new CatalogStore.LoadCallback() {
+            @Override
+            public void onLoaded(CatalogStore.Entry entry) {
+                if(requestScope.isCancelled()) {
+                    return;
+                }
+                if(entry == null || entry.getMovies().isEmpty()) {
+                    if(pager.getFeed().equals(currentFeed)) {
+                        swipeRefreshLayout.setRefreshing(true);
+                    }
+                    feedRefresher.refresh(pager);
+                    return;
+                }
+                pager.restore(entry.getMovies(), entry.getPage(), entry.getTotalPages());
+                show(pager, layoutState);
+                if(entry.isStale()) {
+                    // Revalidate in the background while the stored copy is shown.
+                    feedRefresher.refresh(pager);
+                }
+            }
+        });
+    }
+
+    /**
+     * The feed on screen loads ahead of the others.
+     */
+    private void updatePriorities() {
+        for (MoviePager pager : pagers.values()) {
+            pager.setPriority(pager.getFeed().equals(currentFeed)
+                    ? RequestScheduler.VISIBLE : RequestScheduler.BACKGROUND_SYNC);
+        }
+    }
+
+    /**
+     * Displays the movies of the pager if its feed is on screen.
+     *
+     * @param layoutState scroll position to put back once the movies are shown, if any.
+     */
+    private void show(MoviePager pager, final Parcelable layoutState) {
+        if(pager.getFeed().equals(currentFeed)) {
+            // Rows show up once built in the background, the scroll position is put back then.
+            adapter.submitList(pager.getMovies(), new Runnable() {
+                @Override
+                public void run() {
+                    if(layoutState != null) {
+                        layoutManager.onRestoreInstanceState(layoutState);
+                    }
+                    recordFirstRow.run();
+                }
+            });
+        } else if(layoutState != null) {
+            layoutStates.put(pager.getFeed(), layoutState);
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_home, menu);
+        initSearch(menu.findItem(R.id.action_search));
+        // Metrics are a development tool only.
+        menu.findItem(R.id.action_dump_metrics).setVisible(BuildConfig.DEBUG);
+        return true;
+    }
+
+    /**
+     * Filters the list as the query is typed, the index does the matching.
+     */
+    private void initSearch(MenuItem searchItem) {
+        SearchView searchView = (SearchView) MenuItemCompat.getActionView(searchItem);
+        searchView.setQueryHint(getString(R.string.search_hint));
+        String query = adapter.getQuery();
+        if(!query.isEmpty()) {
+            MenuItemCompat.expandActionView(searchItem);
+            searchView.setQuery(query, false);
+        }
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                adapter.setQuery(query);
+                return false;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                adapter.setQuery(query);
+                return true;
             }
         });
     }
 
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if(item.getItemId() == R.id.action_dump_metrics) {
+            Metrics.getMetrics().dump(this);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        imagePrefetcher.cancelAll();
+        imageRequests.cancelRows();
+        trailerPrefetcher.cancelAll();
+        if(isChangingConfigurations()) {
+            // Handed over to the re-created screen, see onRetainCustomNonConfigurationInstance().
+            for (MoviePager pager : pagers.values()) {
+                pager.setListener(null);
+            }
+            feedRefresher.setListener(null);
+            requestScope.cancelAfterRelaunch();
+        } else {
+            feedRefresher.cancel();
+            for (MoviePager pager : pagers.values()) {
+                pager.cancel();
+            }
+            requestScope.cancel();
+        }
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        // Movies are rehydrated from the repository, only the scroll position is kept.
+        outState.putParcelable(EXTRA_LAYOUT_STATE, layoutManager.onSaveInstanceState());
+        outState.putString(EXTRA_QUERY, adapter.getQuery());
+        outState.putString(EXTRA_FEED, currentFeed);
+    }
+
+    /**
+     * Queries backend for the first page of every feed and replaces their lists.
+     */
+    private void refreshAll() {
+        swipeRefreshLayout.setRefreshing(true);
+        for (MoviePager pager : pagers.values()) {
+            feedRefresher.refresh(pager);
+        }
+    }
+
+    @Override
+    public void onPageLoaded(MoviePager pager, int positionStart, int itemCount, boolean isRefresh) {
+        // Swaps the movies of the list for catalog rows, before they are shown.
+        movieRepository.saveList(pager.getFeed(), pager.getMovies(), pager.getPage(), pager.getTotalPages());
+        if(pager.getFeed().equals(currentFeed) && (isRefresh || itemCount > 0)) {
+            adapter.submitList(pager.getMovies(), recordFirstRow);
+        }
+    }
+
+    @Override
+    public void onPageFailed(MoviePager pager, boolean isRefresh) {
+    }
+
     @Override
     public void onItemClick(View itemView, int position, @MovieAdapter.ItemType int type) {
         Intent intent;
         intent = new Intent(FlicksterHomeActivity.this, DetailsActivity.class);
-        intent.putExtra(DetailsActivity.EXTRA_MOVIE, moviesList.get(position));
+        intent.putExtra(DetailsActivity.EXTRA_MOVIE_ID, adapter.getItem(position).getId());
         ActivityCompat.startActivity(FlicksterHomeActivity.this, intent, null);
     }
 
@@ -134,11 +442,24 @@ public class FlicksterHomeActivity extends AppCompatActivity implements MovieAda
         if(type == MovieAdapter.BANNER) {
             // Trigger youtube video if it's a bannerImage type.
             intent = new Intent(FlicksterHomeActivity.this, VideoActivity.class);
-            intent.putExtra(VideoActivity.EXTRA_VIDEO_ID, moviesList.get(position).getId());
+            intent.putExtra(VideoActivity.EXTRA_VIDEO_ID, adapter.getItem(position).getId());
             ActivityCompat.startActivity(FlicksterHomeActivity.this, intent, null);
         }
     }
 
+    /**
+     * Feeds kept across a configuration change.
+     */
+    private static class RetainedFeeds {
+        final LinkedHashMap<String, MoviePager> pagers;
+        final FeedRefresher feedRefresher;
+
+        RetainedFeeds(LinkedHashMap<String, MoviePager> pagers, FeedRefresher feedRefresher) {
+            this.pagers = pagers;
+            this.feedRefresher = feedRefresher;
+        }
+    }
+
     /**
      * Handles divider for Recycler view between items.
      */
@@ -1,11 +1,14 @@
 package com.codepath.flickster.activities;
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.widget.Toast;
 
 import com.codepath.flickster.R;
+import com.codepath.flickster.metrics.Metrics;
 import com.codepath.flickster.model.Video;
 import com.codepath.flickster.network.NetworkManager;
+import com.codepath.flickster.network.RequestScope;
 import com.google.android.youtube.player.YouTubeBaseActivity;
 import com.google.android.youtube.player.YouTubeInitializationResult;
 import com.google.android.youtube.player.YouTubePlayer;
@@ -16,6 +19,14 @@ import java.util.ArrayList;
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
+/**
+ * Plays the first trailer of a movie full screen.
+ *
+ * The player and the video lookup are started together in {@link #onCreate(Bundle)}
+ * and the video is loaded as soon as both are ready, whichever comes last.
+ *
+ * @author yvastavaus.
+ */
 public class VideoActivity extends YouTubeBaseActivity implements YouTubePlayer.OnInitializedListener {
 
     private static final String TAG = VideoActivity.class.getSimpleName();
@@ -31,6 +42,16 @@ public class VideoActivity extends YouTubeBaseActivity implements YouTubePlayer.
 
     private int id;
 
+    // Result of the lookup stage, null until it succeeds.
+    private String videoKey;
+    private final RequestScope requestScope = new RequestScope();
+    private boolean isFinished;
+
+    // Stage timings, in elapsed realtime milliseconds.
+    private long startTime;
+    private long playerReadyTime;
+    private long videoReadyTime;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -45,59 +66,107 @@ public class VideoActivity extends YouTubeBaseActivity implements YouTubePlayer.
                 finish();
             } else {
                 this.id = id;
+                startTime = SystemClock.elapsedRealtime();
+                // Both stages run at once and meet in loadVideoWhenReady().
                 youTubePlayerView.initialize(getString(R.string.youtube_key),this);
+                fetchVideoInfo(id);
             }
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        isFinished = true;
+        if(isChangingConfigurations()) {
+            // The re-created screen joins the request in flight.
+            requestScope.cancelAfterRelaunch();
+        } else {
+            requestScope.cancel();
+        }
+        super.onDestroy();
+    }
+
     /**
      * Handles the network connection to the Video API.
      *
      * @param id
      */
     private void fetchVideoInfo(int id) {
-        networkManager.getVideoLink(id, new NetworkManager.VideoRequestCallback() {
+        requestScope.add(networkManager.getVideoLink(id, new NetworkManager.VideoRequestCallback() {
             @Override
             public void onSuccess(ArrayList<Video> videoList) {
-                if(videoList.size() > 0) {
-
-                    try {
-                        // Pass the first trailer to be played by youtube player.
-                        youTubePlayer.setOnFullscreenListener(new YouTubePlayer.OnFullscreenListener() {
-                            @Override
-                            public void onFullscreen(boolean fullScreen) {
-                                // Close the activity if user presses back or collapse button.
-                                if (!fullScreen) {
-                                    VideoActivity.this.finish();
-                                }
-                            }
-                        });
-                        youTubePlayer.setFullscreen(true);
-                        youTubePlayer.loadVideo(videoList.get(0).getKey());
-                    } catch (IllegalStateException ie) {
-                        Toast.makeText(VideoActivity.this, "Error while playing the video. Please try again!", Toast.LENGTH_SHORT).show();
-                        finish();
-                    }
+                videoReadyTime = SystemClock.elapsedRealtime();
+                Metrics.getMetrics().record("video.lookup_ready", videoReadyTime - startTime);
+                if(videoList.isEmpty()) {
+                    fail("No Video Found for this item");
+                    return;
                 }
+                // Pass the first trailer to be played by youtube player.
+                videoKey = videoList.get(0).getKey();
+                loadVideoWhenReady();
             }
 
             @Override
             public void onFailure() {
-                Toast.makeText(VideoActivity.this, "Unable to get information from the API.", Toast.LENGTH_SHORT).show();
-                finish();
+                fail("Unable to get information from the API.");
             }
-        });
+        }));
+    }
+
+    /**
+     * Join point of the two stages, loads the video once the player is
+     * initialized and the video key is known.
+     */
+    private void loadVideoWhenReady() {
+        if(isFinished || youTubePlayer == null || videoKey == null) {
+            return;
+        }
+        // The later stage held the video back by that long.
+        if(playerReadyTime >= videoReadyTime) {
+            Metrics.getMetrics().record("video.waited_on.player", playerReadyTime - videoReadyTime);
+        } else {
+            Metrics.getMetrics().record("video.waited_on.lookup", videoReadyTime - playerReadyTime);
+        }
+        try {
+            youTubePlayer.setOnFullscreenListener(new YouTubePlayer.OnFullscreenListener() {
+                @Override
+                public void onFullscreen(boolean fullScreen) {
+                    // Close the activity if user presses back or collapse button.
+                    if (!fullScreen) {
+                        VideoActivity.this.finish();
+                    }
+                }
+            });
+            youTubePlayer.setFullscreen(true);
+            youTubePlayer.loadVideo(videoKey);
+        } catch (IllegalStateException ie) {
+            fail("Error while playing the video. Please try again!");
+        }
+    }
+
+    /**
+     * Ends the launch on the first failure of either stage, the other one is dropped.
+     */
+    private void fail(String message) {
+        if(isFinished) {
+            return;
+        }
+        isFinished = true;
+        requestScope.cancel();
+        Toast.makeText(VideoActivity.this, message, Toast.LENGTH_SHORT).show();
+        finish();
     }
 
     @Override
     public void onInitializationSuccess(YouTubePlayer.Provider provider, YouTubePlayer youTubePlayer, boolean b) {
+        playerReadyTime = SystemClock.elapsedRealtime();
+        Metrics.getMetrics().record("video.player_ready", playerReadyTime - startTime);
         this.youTubePlayer = youTubePlayer;
-        fetchVideoInfo(this.id);
+        loadVideoWhenReady();
     }
 
     @Override
     public void onInitializationFailure(YouTubePlayer.Provider provider, YouTubeInitializationResult youTubeInitializationResult) {
-        Toast.makeText(VideoActivity.this, "Youtube Failed!", Toast.LENGTH_SHORT).show();
-        finish();
+        fail("Youtube Failed!");
     }
 }
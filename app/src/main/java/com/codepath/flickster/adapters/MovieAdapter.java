@@ -1,10 +1,11 @@
 package com.codepath.flickster.adapters;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.IntDef;
 import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.RecyclerView;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,19 +13,24 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.codepath.flickster.R;
-import com.codepath.flickster.model.Movie;
+import com.codepath.flickster.concurrent.StageExecutor;
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.core.search.MovieSearchIndex;
+import com.codepath.flickster.display.MovieDisplay;
+import com.codepath.flickster.display.MovieDisplayBuilder;
+import com.codepath.flickster.images.MovieImageRequests;
+import com.codepath.flickster.metrics.ImageLoadTimer;
 import com.codepath.flickster.utils.UiUtils;
 import com.squareup.picasso.Callback;
-import com.squareup.picasso.Picasso;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.List;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import butterknife.OnClick;
-import jp.wasabeef.picasso.transformations.RoundedCornersTransformation;
 
 /**
  * Handles the items displayed in the recycler view for two types of items:
@@ -46,8 +52,20 @@ public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
     public static final int POSTER = 0;
     public static final int BANNER = 1;
 
-    private final ArrayList<Movie> movieList;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ArrayList<MovieDisplay> displayList = new ArrayList<>();
+    // Last submitted list, before the search query filters it.
+    private ArrayList<MovieRecord> sourceList = new ArrayList<>();
+    private final MovieSearchIndex<MovieRecord> searchIndex = new MovieSearchIndex<>();
+    private String query = "";
+    // Read by the display stage to skip lists superseded before they are built.
+    private volatile int submitGeneration;
     private Context context;
+    private final MovieImageRequests imageRequests;
+    private final MovieDisplayBuilder displayBuilder;
+    // Resolved once, binding only assigns them.
+    private final int imageBackgroundColor;
+    private final int posterPlaceholder;
 
     /**
      * Callback class when recycler view item is clicked.
@@ -66,9 +84,117 @@ public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
         void onPlayClick(int position, @MovieAdapter.ItemType int type);
     }
 
-    public MovieAdapter(Context context, ArrayList<Movie> movieList) {
-        this.movieList = movieList;
+    public MovieAdapter(Context context, MovieImageRequests imageRequests) {
         this.context = context;
+        this.imageRequests = imageRequests;
+        this.displayBuilder = new MovieDisplayBuilder(context);
+        this.imageBackgroundColor = ContextCompat.getColor(context, R.color.gray);
+        this.posterPlaceholder = UiUtils.isPortrait(context) ? R.drawable.placeholder : R.drawable.poster_banner;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Replaces the displayed movies with a snapshot of the given list.
+     *
+     * The {@link MovieDisplay} of every new or changed movie is built off the
+     * main thread, along with the changes to the displayed list which are
+     * dispatched as individual inserts, removes, moves and changes so only the
+     * affected rows are rebound. A list submitted while a previous one is
+     * still being processed supersedes it.
+     *
+     * While a search query is set only the matching movies are displayed,
+     * best match first. The search index is updated with the list along the
+     * way, only new or replaced movies are indexed.
+     *
+     * Any movie model goes, e.g. the rows of a catalog, the displays only
+     * keep a reference to it.
+     */
+    public void submitList(List<? extends MovieRecord> newList) {
+        submitList(newList, null);
+    }
+
+    /**
+     * @param onApplied run on the main thread once the list is displayed,
+     *                  unless superseded by another list.
+     */
+    public void submitList(List<? extends MovieRecord> newList, final Runnable onApplied) {
+        final int generation = ++submitGeneration;
+        final ArrayList<MovieRecord> snapshot = new ArrayList<MovieRecord>(newList);
+        final String currentQuery = query;
+        sourceList = snapshot;
+        if (snapshot.isEmpty()) {
+            searchIndex.clear();
+            int previousCount = displayList.size();
+            displayList = new ArrayList<>();
+            if (previousCount > 0) {
+                notifyItemRangeRemoved(0, previousCount);
+            }
+            if (onApplied != null) {
+                onApplied.run();
+            }
+            return;
+        }
+
+        final ArrayList<MovieDisplay> oldList = displayList;
+        StageExecutor.DISPLAY.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != submitGeneration) {
+                    return;
+                }
+                searchIndex.update(snapshot);
+                List<MovieRecord> visibleList = currentQuery.isEmpty() ? snapshot : searchIndex.search(currentQuery);
+                final ArrayList<MovieDisplay> newDisplayList = displayBuilder.buildAll(visibleList, oldList);
+                // Nothing to diff against on the first list.
+                final MovieListDiff diff = oldList.isEmpty() ? null : MovieListDiff.calculate(oldList, newDisplayList);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != submitGeneration) {
+                            return;
+                        }
+                        int previousCount = displayList.size();
+                        displayList = newDisplayList;
+                        if (diff != null) {
+                            diff.dispatchTo(MovieAdapter.this);
+                        } else {
+                            if (previousCount > 0) {
+                                notifyItemRangeRemoved(0, previousCount);
+                            }
+                            notifyItemRangeInserted(0, newDisplayList.size());
+                        }
+                        if (onApplied != null) {
+                            onApplied.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Filters the displayed movies down to the ones matching the query, as
+     * you type. An empty query shows the whole list again.
+     */
+    public void setQuery(String newQuery) {
+        String trimmedStart = newQuery == null ? "" : newQuery.replaceFirst("^\\s+", "");
+        if (trimmedStart.equals(query)) {
+            return;
+        }
+        query = trimmedStart;
+        submitList(sourceList);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public MovieRecord getItem(int position) {
+        return displayList.get(position).getMovie();
+    }
+
+    public MovieDisplay getDisplay(int position) {
+        return displayList.get(position);
     }
 
     private OnItemClickListener mListener;
@@ -118,78 +244,61 @@ public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
     }
 
     private void configureViewPoster(PosterViewHolder posterViewHolder, int position) {
-        Movie movie = movieList.get(position);
-        posterViewHolder.title.setText(movie.getOriginalTitle());
-        posterViewHolder.overview.setText(movie.getOverView());
-        posterViewHolder.movieImage.setBackgroundColor(ContextCompat.getColor(context, R.color.gray));
-        fetchMovieImage(posterViewHolder.movieImage, movie);
+        MovieDisplay display = displayList.get(position);
+        posterViewHolder.title.setText(display.getTitle());
+        posterViewHolder.overview.setText(display.getOverview());
+        posterViewHolder.movieImage.setBackgroundColor(imageBackgroundColor);
+        posterViewHolder.imageLoadTimer.start();
+        imageRequests.forRow(display).placeholder(posterPlaceholder).into(posterViewHolder.movieImage, posterViewHolder);
+        posterViewHolder.imageLoadTimer.requested();
     }
 
     private void configureViewBanner(BannerViewHolder bannerViewHolder, int position) {
-        Movie movie = movieList.get(position);
-        bannerViewHolder.title.setText(movie.getOriginalTitle());
-        bannerViewHolder.movieImage.setBackgroundColor(ContextCompat.getColor(context, R.color.gray));
-        fetchBannerMovieImage(bannerViewHolder.movieImage, bannerViewHolder.playButtonImage, movie);
+        MovieDisplay display = displayList.get(position);
+        bannerViewHolder.title.setText(display.getTitle());
+        bannerViewHolder.movieImage.setBackgroundColor(imageBackgroundColor);
+        bannerViewHolder.playButtonImage.setVisibility(View.GONE);
+        bannerViewHolder.imageLoadTimer.start();
+        imageRequests.forRow(display).placeholder(R.drawable.poster_banner).into(bannerViewHolder.movieImage, bannerViewHolder);
+        bannerViewHolder.imageLoadTimer.requested();
     }
 
-    private void fetchBannerMovieImage(final ImageView movieImage, final ImageView playbutton, Movie movie) {
-        playbutton.setVisibility(View.GONE);
-        final Callback callback = new Callback() {
-            @Override
-            public void onSuccess() {
-                movieImage.setBackground(null);
-                playbutton.setVisibility(View.VISIBLE);
-            }
-            @Override
-            public void onError() {}
-        };
-        Picasso.with(context).load(movie.getBannerPoster()).placeholder(R.drawable.poster_banner).transform(new RoundedCornersTransformation(10, 10)).into(movieImage, callback);
+    /**
+     * The image of a row off screen is no longer worth loading.
+     */
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        switch (holder.getItemViewType()) {
+            case BANNER:
+                BannerViewHolder bannerViewHolder = (BannerViewHolder) holder;
+                imageRequests.getPicasso().cancelRequest(bannerViewHolder.movieImage);
+                bannerViewHolder.imageLoadTimer.cancel();
+                break;
+            case POSTER:
+            default:
+                PosterViewHolder posterViewHolder = (PosterViewHolder) holder;
+                imageRequests.getPicasso().cancelRequest(posterViewHolder.movieImage);
+                posterViewHolder.imageLoadTimer.cancel();
+                break;
+        }
     }
 
-
     @Override
     public int getItemViewType(int position) {
-        if(movieList.get(position).getVoteAverage() > 5) {
-            return BANNER;
-        } else {
-            return POSTER;
-        }
+        return displayList.get(position).getViewType();
     }
 
-    /**
-     * Fetch movie depending on the orientation of the device and applying image transformations.
-     *
-     * @param movieImage
-     * @param movie
-     */
-    private void fetchMovieImage(final ImageView movieImage, Movie movie) {
-        final Callback callback = new Callback() {
-            @Override
-            public void onSuccess() {
-                movieImage.setBackground(null);
-            }
-
-            @Override
-            public void onError() {
-
-            }
-        };
-
-        if(UiUtils.isPortrait(context)) {
-            Log.d(TAG, "onBindViewHolder: url: poster: " + movie.getPosterPath());
-            Picasso.with(context).load(movie.getPosterPath()).transform(new RoundedCornersTransformation(10, 10)).placeholder(R.drawable.placeholder).into(movieImage, callback);
-        } else {
-            Log.d(TAG, "onBindViewHolder: url: Banner:  " + movie.getBannerPoster());
-            Picasso.with(context).load(movie.getBannerPoster()).placeholder(R.drawable.poster_banner).transform(new RoundedCornersTransformation(10, 10)).into(movieImage, callback);
-        }
+    @Override
+    public int getItemCount() {
+        return displayList.size();
     }
 
     @Override
-    public int getItemCount() {
-        return movieList.size();
+    public long getItemId(int position) {
+        return displayList.get(position).getId();
     }
 
-    public static class PosterViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+    public static class PosterViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener, Callback {
         @BindView(R.id.movieImage)
         public ImageView movieImage;
 
@@ -200,6 +309,7 @@ public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
         public TextView overview;
 
         OnItemClickListener mListener;
+        final ImageLoadTimer imageLoadTimer = new ImageLoadTimer();
 
         public PosterViewHolder(View itemView, OnItemClickListener mListener) {
             super(itemView);
@@ -214,9 +324,21 @@ public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
                 mListener.onItemClick(v, getLayoutPosition(), POSTER);
             }
         }
+
+        // The holder itself is the image callback to avoid allocating one per bind.
+        @Override
+        public void onSuccess() {
+            imageLoadTimer.onSuccess();
+            movieImage.setBackground(null);
+        }
+
+        @Override
+        public void onError() {
+            imageLoadTimer.onError();
+        }
     }
 
-    public static class BannerViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+    public static class BannerViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener, Callback {
 
         @BindView(R.id.movieImage)
         ImageView movieImage;
@@ -229,6 +351,7 @@ public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
 
         private final OnItemClickListener mListener;
         private final OnPlayButtonListener mPlayListener;
+        final ImageLoadTimer imageLoadTimer = new ImageLoadTimer();
 
         public BannerViewHolder(View itemView, OnItemClickListener mListener, OnPlayButtonListener mPlayListener) {
             super(itemView);
@@ -259,5 +382,18 @@ public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
         public void onClick(View v) {
             // Future use.
         }
+
+        // The holder itself is the image callback to avoid allocating one per bind.
+        @Override
+        public void onSuccess() {
+            imageLoadTimer.onSuccess();
+            movieImage.setBackground(null);
+            playButtonImage.setVisibility(View.VISIBLE);
+        }
+
+        @Override
+        public void onError() {
+            imageLoadTimer.onError();
+        }
     }
 }
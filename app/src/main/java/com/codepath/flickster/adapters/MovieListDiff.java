@@ -0,0 +1,266 @@
+package com.codepath.flickster.adapters;
+
+import android.support.v7.widget.RecyclerView;
+
+import com.codepath.flickster.core.model.MovieRecords;
+import com.codepath.flickster.display.MovieDisplay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal set of operations turning one movie list into another, movies are
+ * matched by id. The longest run of movies already in the new order stays
+ * where it is, only the other movies move.
+ *
+ * Operations are recorded in the order they have to be applied, each
+ * position being relative to the list as left by the previous operations,
+ * which is exactly what the {@code notifyItem*} calls of an adapter expect.
+ * Consecutive inserts, removes and changes are merged into ranges.
+ *
+ * The calculation does not touch any view or Android class and is meant to
+ * run off the main thread.
+ *
+ * @author yvastavaus.
+ */
+final class MovieListDiff {
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int MOVE = 2;
+    private static final int CHANGE = 3;
+
+    // Operations as {type, position, count or target position}.
+    private final ArrayList<int[]> operations = new ArrayList<>();
+
+    /**
+     * Receives the operations, in the order they have to be applied.
+     */
+    interface Callback {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onChanged(int position, int count);
+    }
+
+    private MovieListDiff() {}
+
+    static MovieListDiff calculate(List<MovieDisplay> oldList, List<MovieDisplay> newList) {
+        MovieListDiff diff = new MovieListDiff();
+        int[] oldIds = sortedIds(oldList);
+        long[] newPositions = sortedPositions(newList);
+
+        // Drop the movies that are gone, from the end so positions stay valid.
+        ArrayList<MovieDisplay> working = new ArrayList<>(oldList);
+        for (int i = working.size() - 1; i >= 0; i--) {
+            if (positionOf(newPositions, working.get(i).getId()) < 0) {
+                working.remove(i);
+                diff.addRemove(i);
+            }
+        }
+
+        // The longest run of movies already in the new order stays, the others move.
+        int[] survivorPositions = new int[working.size()];
+        for (int i = 0; i < survivorPositions.length; i++) {
+            survivorPositions[i] = positionOf(newPositions, working.get(i).getId());
+        }
+        boolean[] isInPlace = longestIncreasing(survivorPositions, newList.size());
+
+        // Walk the new list placing every movie right after the previous one.
+        int previous = -1;
+        for (int position = 0; position < newList.size(); position++) {
+            MovieDisplay movie = newList.get(position);
+            if (Arrays.binarySearch(oldIds, movie.getId()) < 0) {
+                previous++;
+                working.add(previous, movie);
+                diff.addInsert(previous);
+                continue;
+            }
+            if (isInPlace[position]) {
+                // Kept in order, it sits after every movie placed so far.
+                previous = indexOf(working, movie.getId(), previous + 1);
+            } else {
+                int from = indexOf(working, movie.getId(), 0);
+                int to = from > previous ? previous + 1 : previous;
+                if (from != to) {
+                    working.add(to, working.remove(from));
+                    diff.operations.add(new int[]{MOVE, from, to});
+                }
+                previous = to;
+            }
+            MovieDisplay current = working.get(previous);
+            if (current != movie && !MovieRecords.isSameContent(current.getMovie(), movie.getMovie())) {
+                diff.addChange(previous);
+            }
+        }
+        return diff;
+    }
+
+    private static int[] sortedIds(List<MovieDisplay> list) {
+        int[] ids = new int[list.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = list.get(i).getId();
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * @return id and position of every movie as one long, id in the high
+     *         bits, sorted by id.
+     */
+    private static long[] sortedPositions(List<MovieDisplay> list) {
+        long[] positions = new long[list.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = (long) list.get(i).getId() << 32 | i;
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * @return position of the movie in the list of the sorted positions, -1 if it isn't in it.
+     */
+    private static int positionOf(long[] sortedPositions, int id) {
+        int i = Arrays.binarySearch(sortedPositions, (long) id << 32);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        if (i < sortedPositions.length && (int) (sortedPositions[i] >> 32) == id) {
+            return (int) sortedPositions[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Longest increasing subsequence, in O(n log n).
+     *
+     * @param positions distinct positions, each smaller than {@code size}.
+     * @return for every position, whether it is part of the subsequence.
+     */
+    private static boolean[] longestIncreasing(int[] positions, int size) {
+        // tails[k]: index of the smallest last element of an increasing run of length k + 1.
+        int[] tails = new int[positions.length];
+        int[] predecessors = new int[positions.length];
+        int length = 0;
+        for (int i = 0; i < positions.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions[tails[middle]] < positions[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] isInSequence = new boolean[size];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            isInSequence[positions[i]] = true;
+        }
+        return isInSequence;
+    }
+
+    private static int indexOf(List<MovieDisplay> list, int id, int fromIndex) {
+        for (int i = fromIndex; i < list.size(); i++) {
+            if (list.get(i).getId() == id) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("movie not found: " + id);
+    }
+
+    private int[] lastOperation(int type) {
+        if (operations.isEmpty()) {
+            return null;
+        }
+        int[] last = operations.get(operations.size() - 1);
+        return last[0] == type ? last : null;
+    }
+
+    private void addRemove(int position) {
+        int[] last = lastOperation(REMOVE);
+        // Removals are recorded backwards, the previous range starts right after this one.
+        if (last != null && last[1] == position + 1) {
+            last[1] = position;
+            last[2]++;
+        } else {
+            operations.add(new int[]{REMOVE, position, 1});
+        }
+    }
+
+    private void addInsert(int position) {
+        int[] last = lastOperation(INSERT);
+        if (last != null && last[1] + last[2] == position) {
+            last[2]++;
+        } else {
+            operations.add(new int[]{INSERT, position, 1});
+        }
+    }
+
+    private void addChange(int position) {
+        int[] last = lastOperation(CHANGE);
+        if (last != null && last[1] + last[2] == position) {
+            last[2]++;
+        } else {
+            operations.add(new int[]{CHANGE, position, 1});
+        }
+    }
+
+    boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    void dispatchTo(final RecyclerView.Adapter adapter) {
+        dispatchTo(new Callback() {
+            @Override
+            public void onInserted(int position, int count) {
+                adapter.notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                adapter.notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                adapter.notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                adapter.notifyItemRangeChanged(position, count);
+            }
+        });
+    }
+
+    void dispatchTo(Callback callback) {
+        for (int[] operation : operations) {
+            switch (operation[0]) {
+                case INSERT:
+                    callback.onInserted(operation[1], operation[2]);
+                    break;
+                case REMOVE:
+                    callback.onRemoved(operation[1], operation[2]);
+                    break;
+                case MOVE:
+                    callback.onMoved(operation[1], operation[2]);
+                    break;
+                case CHANGE:
+                    callback.onChanged(operation[1], operation[2]);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.codepath.flickster.concurrent;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.IntDef;
+
+import com.codepath.flickster.metrics.Metrics;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded background executor running one stage of the response pipeline:
+ * the network I/O happens on the transport threads, then
+ * <ol>
+ *     <li>{@link #PARSE} maps buffered response bodies to models,</li>
+ *     <li>{@link #DISPLAY} prepares the display models and diffs of the list,</li>
+ * </ol>
+ * and only the resulting immutable snapshot is posted to the main thread.
+ *
+ * Records {@code stage.<name>.queue} (tasks waiting when one is submitted),
+ * {@code stage.<name>.wait}, {@code stage.<name>.run}, and when the queue
+ * is full {@code stage.<name>.caller_ran}, {@code stage.<name>.overflowed}
+ * or {@code stage.<name>.dropped}.
+ *
+ * @author yvastavaus.
+ */
+public class StageExecutor implements Executor {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({RUN_ON_CALLER, DROP_OLDEST})
+    public @interface OverflowPolicy {}
+
+    /**
+     * A full queue slows the submitter down by running the task on its thread.
+     * The main thread never runs a task, its tasks queue past the bound.
+     */
+    public static final int RUN_ON_CALLER = 0;
+    /**
+     * A full queue drops its oldest task, for stages where a newer task supersedes older ones.
+     */
+    public static final int DROP_OLDEST = 1;
+
+    public static final StageExecutor PARSE = new StageExecutor("parse", 2, 32, RUN_ON_CALLER);
+    public static final StageExecutor DISPLAY = new StageExecutor("display", 1, 4, DROP_OLDEST);
+
+    private final String name;
+    private final int queueCapacity;
+    private final @OverflowPolicy int overflowPolicy;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threadCount threads of the stage, started on demand.
+     * @param queueCapacity tasks waiting at most.
+     */
+    public StageExecutor(final String name, int threadCount, int queueCapacity, @OverflowPolicy int overflowPolicy) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        // The bound is enforced in execute(), the queue itself only fills past it from the main thread.
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "stage-" + name + "-" + count.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return tasks waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        final Metrics metrics = Metrics.getMetrics();
+        int queueDepth = executor.getQueue().size();
+        metrics.record("stage." + name + ".queue", queueDepth);
+        final long submitTime = SystemClock.elapsedRealtime();
+        Runnable timedTask = new Runnable() {
+            @Override
+            public void run() {
+                long startTime = SystemClock.elapsedRealtime();
+                metrics.record("stage." + name + ".wait", startTime - submitTime);
+                try {
+                    task.run();
+                } finally {
+                    metrics.record("stage." + name + ".run", SystemClock.elapsedRealtime() - startTime);
+                }
+            }
+        };
+        if (queueDepth >= queueCapacity) {
+            if (overflowPolicy == DROP_OLDEST) {
+                if (executor.getQueue().poll() != null) {
+                    metrics.record("stage." + name + ".dropped", 1);
+                }
+            } else if (Looper.myLooper() != Looper.getMainLooper()) {
+                metrics.record("stage." + name + ".caller_ran", 1);
+                timedTask.run();
+                return;
+            } else {
+                metrics.record("stage." + name + ".overflowed", 1);
+            }
+        }
+        executor.execute(timedTask);
+    }
+}
@@ -0,0 +1,77 @@
+package com.codepath.flickster.display;
+
+import com.codepath.flickster.adapters.MovieAdapter;
+import com.codepath.flickster.core.model.MovieRecord;
+
+/**
+ * Everything a movie row or the details screen shows, worked out once by
+ * {@link MovieDisplayBuilder} off the main thread so binding only assigns
+ * fields.
+ *
+ * Immutable, the image url is the one of the row at the orientation it was
+ * built for. Id, title and overview are read from the movie once too, rows
+ * of the catalog create their strings on every call.
+ *
+ * @author yvastavaus.
+ */
+public class MovieDisplay {
+
+    private final MovieRecord movie;
+    private final int id;
+    private final String title;
+    private final String overview;
+    private final @MovieAdapter.ItemType int viewType;
+    private final String rowImageUrl;
+    private final String formattedReleaseDate;
+    private final float rating;
+
+    MovieDisplay(MovieRecord movie, int id, String title, String overview, @MovieAdapter.ItemType int viewType,
+                 String rowImageUrl, String formattedReleaseDate, float rating) {
+        this.movie = movie;
+        this.id = id;
+        this.title = title;
+        this.overview = overview;
+        this.viewType = viewType;
+        this.rowImageUrl = rowImageUrl;
+        this.formattedReleaseDate = formattedReleaseDate;
+        this.rating = rating;
+    }
+
+    public MovieRecord getMovie() {
+        return movie;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+
+    public @MovieAdapter.ItemType int getViewType() {
+        return viewType;
+    }
+
+    /**
+     * @return url of the image of the row, null if the movie has none.
+     */
+    public String getRowImageUrl() {
+        return rowImageUrl;
+    }
+
+    public String getFormattedReleaseDate() {
+        return formattedReleaseDate;
+    }
+
+    /**
+     * @return rating out of 5 stars.
+     */
+    public float getRating() {
+        return rating;
+    }
+}
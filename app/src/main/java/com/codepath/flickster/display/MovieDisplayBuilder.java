@@ -0,0 +1,81 @@
+package com.codepath.flickster.display;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import com.codepath.flickster.adapters.MovieAdapter;
+import com.codepath.flickster.core.format.ReleaseDateFormatter;
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.core.model.MovieRecords;
+import com.codepath.flickster.images.ImageUrlResolver;
+import com.codepath.flickster.utils.UiUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the {@link MovieDisplay} of movies: view type, image url of the row,
+ * formatted release date and star rating.
+ *
+ * Everything depending on the context is read up front, building itself is
+ * safe on any thread.
+ *
+ * @author yvastavaus.
+ */
+public class MovieDisplayBuilder {
+
+    // Movies voted above this are shown as a full width banner.
+    private static final double BANNER_VOTE_AVERAGE = 5;
+    // Votes are out of 10, the rating bars show 5 stars.
+    private static final float VOTES_PER_STAR = 2f;
+
+    private final boolean isPortrait;
+    private final int posterRowImageWidth;
+    private final int bannerRowImageWidth;
+    private final ImageUrlResolver imageUrlResolver;
+
+    public MovieDisplayBuilder(Context context) {
+        this.imageUrlResolver = new ImageUrlResolver(context);
+        this.isPortrait = UiUtils.isPortrait(context);
+        this.posterRowImageWidth = imageUrlResolver.getPosterRowImageWidth();
+        this.bannerRowImageWidth = imageUrlResolver.getBannerRowImageWidth();
+    }
+
+    public MovieDisplay build(MovieRecord movie) {
+        @MovieAdapter.ItemType int viewType;
+        String rowImageUrl;
+        if (movie.getVoteAverage() > BANNER_VOTE_AVERAGE) {
+            viewType = MovieAdapter.BANNER;
+            rowImageUrl = imageUrlResolver.getBackdropUrl(movie, bannerRowImageWidth);
+        } else {
+            viewType = MovieAdapter.POSTER;
+            // Poster in portrait, backdrop in landscape.
+            rowImageUrl = isPortrait
+                    ? imageUrlResolver.getPosterUrl(movie, posterRowImageWidth)
+                    : imageUrlResolver.getBackdropUrl(movie, posterRowImageWidth);
+        }
+        return new MovieDisplay(movie, movie.getId(), movie.getOriginalTitle(), movie.getOverView(), viewType,
+                rowImageUrl, ReleaseDateFormatter.format(movie.getReleaseDate()),
+                (float) movie.getVoteAverage() / VOTES_PER_STAR);
+    }
+
+    /**
+     * Builds the displays of a list, reusing the previous display of every
+     * movie whose content hasn't changed.
+     */
+    public ArrayList<MovieDisplay> buildAll(List<? extends MovieRecord> movies, List<MovieDisplay> previous) {
+        SparseArray<MovieDisplay> previousById = new SparseArray<>(previous.size());
+        for (MovieDisplay display : previous) {
+            previousById.put(display.getId(), display);
+        }
+        ArrayList<MovieDisplay> displays = new ArrayList<>(movies.size());
+        for (MovieRecord movie : movies) {
+            MovieDisplay display = previousById.get(movie.getId());
+            if (display == null || !MovieRecords.isSameContent(display.getMovie(), movie)) {
+                display = build(movie);
+            }
+            displays.add(display);
+        }
+        return displays;
+    }
+}
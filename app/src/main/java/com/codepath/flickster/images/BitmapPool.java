@@ -0,0 +1,171 @@
+package com.codepath.flickster.images;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.codepath.flickster.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pool of mutable bitmaps no longer in use, grouped by size and config, so
+ * transformations can draw into an existing bitmap instead of allocating a
+ * new one for every image.
+ *
+ * The bytes retained are capped, the least recently returned bitmaps are
+ * evicted first. Hit rate and size are kept to tune the cap, every request
+ * also records {@code bitmap_pool.get.hit_percent}, 100 on a hit and 0 on a
+ * miss, so the mean of the dump is the hit rate.
+ *
+ * @author yvastavaus.
+ */
+public class BitmapPool {
+
+    private static final String TAG = BitmapPool.class.getSimpleName();
+
+    // Share of the heap the pool may hold on to.
+    private static final int HEAP_FRACTION = 16;
+
+    private static BitmapPool INSTANCE;
+
+    // Bitmaps grouped by size/config key, in least recently returned order.
+    private final HashMap<String, ArrayList<Bitmap>> buckets = new HashMap<>();
+    private final LinkedHashMap<Bitmap, String> lruBitmaps = new LinkedHashMap<>();
+    private final long maxSizeBytes;
+    private long sizeBytes;
+
+    private int hitCount;
+    private int missCount;
+    private int putCount;
+    private int evictionCount;
+
+    public BitmapPool(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public static synchronized BitmapPool getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BitmapPool(Runtime.getRuntime().maxMemory() / HEAP_FRACTION);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return a cleared bitmap of exactly the given size and config, taken
+     *         from the pool if possible and allocated otherwise.
+     */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = take(width, height, config);
+        Metrics.getMetrics().record("bitmap_pool.get.hit_percent", bitmap != null ? 100 : 0);
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    private synchronized Bitmap take(int width, int height, Bitmap.Config config) {
+        ArrayList<Bitmap> bucket = buckets.get(key(width, height, config));
+        if (bucket == null || bucket.isEmpty()) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        Bitmap bitmap = bucket.remove(bucket.size() - 1);
+        lruBitmaps.remove(bitmap);
+        sizeBytes -= bitmap.getByteCount();
+        return bitmap;
+    }
+
+    /**
+     * Hands a bitmap over to the pool, the caller must not use it afterwards.
+     * Bitmaps that can't be reused, i.e. immutable or too big, are recycled
+     * right away. See {@link PoolableRequestHandler} for decoding mutable ones.
+     */
+    public void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable() || bitmap.getByteCount() > maxSizeBytes) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            String key = key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+            ArrayList<Bitmap> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.put(key, bucket);
+            }
+            bucket.add(bitmap);
+            lruBitmaps.put(bitmap, key);
+            sizeBytes += bitmap.getByteCount();
+            putCount++;
+            trimToSize(maxSizeBytes);
+        }
+    }
+
+    /**
+     * Releases memory as requested by {@code onTrimMemory}.
+     */
+    public synchronized void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            trimToSize(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(maxSizeBytes / 2);
+        }
+    }
+
+    private void trimToSize(long targetSizeBytes) {
+        Iterator<Map.Entry<Bitmap, String>> iterator = lruBitmaps.entrySet().iterator();
+        while (sizeBytes > targetSizeBytes && iterator.hasNext()) {
+            Map.Entry<Bitmap, String> eldest = iterator.next();
+            Bitmap bitmap = eldest.getKey();
+            ArrayList<Bitmap> bucket = buckets.get(eldest.getValue());
+            bucket.remove(bitmap);
+            if (bucket.isEmpty()) {
+                buckets.remove(eldest.getValue());
+            }
+            iterator.remove();
+            sizeBytes -= bitmap.getByteCount();
+            evictionCount++;
+            bitmap.recycle();
+        }
+    }
+
+    private static String key(int width, int height, Bitmap.Config config) {
+        return width + "x" + height + ":" + config;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return share of the requests served from the pool, between 0 and 1.
+     */
+    public synchronized float getHitRate() {
+        int requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : hitCount / (float) requestCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return TAG + "[hits=" + hitCount + ", misses=" + missCount + ", hitRate=" + getHitRate() + ", puts=" + putCount
+                + ", evictions=" + evictionCount + ", bitmaps=" + lruBitmaps.size() + ", bytes=" + sizeBytes + "/" + maxSizeBytes + "]";
+    }
+}
@@ -0,0 +1,167 @@
+package com.codepath.flickster.images;
+
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+
+import com.codepath.flickster.adapters.MovieAdapter;
+import com.codepath.flickster.display.MovieDisplay;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.Picasso;
+
+/**
+ * Warms the image cache for the rows about to come on screen.
+ *
+ * Watches the direction and speed of the scroll and prefetches the images of
+ * the next rows in that direction, more of them the faster the list moves.
+ * Prefetches falling out of that window, e.g. when the user changes
+ * direction, are cancelled.
+ *
+ * Nothing is prefetched while the list flings, the rows ahead are mostly
+ * flown past, see {@link RowImagePauser}. Once it settles the next rows in
+ * the direction of the fling are prefetched.
+ *
+ * @author yvastavaus.
+ */
+public class ImagePrefetcher extends RecyclerView.OnScrollListener {
+
+    // Rows prefetched ahead when scrolling slowly and at most.
+    private static final int MIN_ROWS_AHEAD = 2;
+    private static final int MAX_ROWS_AHEAD = 8;
+    // Scroll speed, in pixels per millisecond, adding one more row ahead.
+    private static final float SPEED_PER_EXTRA_ROW = 0.5f;
+
+    private final MovieAdapter adapter;
+    private final LinearLayoutManager layoutManager;
+    private final MovieImageRequests imageRequests;
+    private final Picasso picasso;
+
+    // Prefetch tag per movie id.
+    private final SparseArray<Object> inFlight = new SparseArray<>();
+
+    private long lastScrollTime;
+    private int lastDirection;
+    private boolean isFlinging;
+    private int windowStart = RecyclerView.NO_POSITION;
+    private int windowEnd = RecyclerView.NO_POSITION;
+
+    public ImagePrefetcher(MovieAdapter adapter, LinearLayoutManager layoutManager, MovieImageRequests imageRequests) {
+        this.adapter = adapter;
+        this.layoutManager = layoutManager;
+        this.imageRequests = imageRequests;
+        this.picasso = imageRequests.getPicasso();
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        boolean wasFlinging = isFlinging;
+        isFlinging = newState == RecyclerView.SCROLL_STATE_SETTLING;
+        if (isFlinging) {
+            cancelAll();
+        } else if (wasFlinging && newState == RecyclerView.SCROLL_STATE_IDLE && lastDirection != 0) {
+            prefetchAhead(lastDirection, MIN_ROWS_AHEAD);
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        long elapsed = Math.max(now - lastScrollTime, 1);
+        lastScrollTime = now;
+        lastDirection = dy;
+        if (isFlinging) {
+            return;
+        }
+        float speed = Math.abs(dy) / (float) elapsed;
+        prefetchAhead(dy, Math.min(MIN_ROWS_AHEAD + (int) (speed / SPEED_PER_EXTRA_ROW), MAX_ROWS_AHEAD));
+    }
+
+    /**
+     * @param direction positive when scrolling down.
+     */
+    private void prefetchAhead(int direction, int rowsAhead) {
+        int itemCount = adapter.getItemCount();
+        int start;
+        int end;
+        if (direction > 0) {
+            start = layoutManager.findLastVisibleItemPosition() + 1;
+            end = Math.min(start + rowsAhead, itemCount) - 1;
+        } else {
+            end = layoutManager.findFirstVisibleItemPosition() - 1;
+            start = Math.max(end - rowsAhead + 1, 0);
+        }
+        if (start < 0 || end < start) {
+            cancelAll();
+            return;
+        }
+        if (start == windowStart && end == windowEnd) {
+            return;
+        }
+        windowStart = start;
+        windowEnd = end;
+        updateWindow(start, end);
+    }
+
+    private void updateWindow(int start, int end) {
+        // Drop whatever is no longer ahead of the user.
+        for (int i = inFlight.size() - 1; i >= 0; i--) {
+            int movieId = inFlight.keyAt(i);
+            if (!isInWindow(movieId, start, end)) {
+                picasso.cancelTag(inFlight.valueAt(i));
+                inFlight.removeAt(i);
+            }
+        }
+        for (int position = start; position <= end; position++) {
+            final MovieDisplay movie = adapter.getDisplay(position);
+            if (inFlight.get(movie.getId()) != null) {
+                continue;
+            }
+            final Object tag = new Object();
+            inFlight.put(movie.getId(), tag);
+            imageRequests.forPrefetch(movie)
+                    .tag(tag)
+                    .fetch(new Callback() {
+                        @Override
+                        public void onSuccess() {
+                            remove(movie.getId(), tag);
+                        }
+
+                        @Override
+                        public void onError() {
+                            remove(movie.getId(), tag);
+                        }
+                    });
+        }
+    }
+
+    private boolean isInWindow(int movieId, int start, int end) {
+        for (int position = start; position <= end; position++) {
+            if (adapter.getItemId(position) == movieId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(int movieId, Object tag) {
+        if (inFlight.get(movieId) == tag) {
+            inFlight.remove(movieId);
+        }
+    }
+
+    /**
+     * Cancels every prefetch, e.g. when the list goes away.
+     */
+    public void cancelAll() {
+        for (int i = 0; i < inFlight.size(); i++) {
+            picasso.cancelTag(inFlight.valueAt(i));
+        }
+        inFlight.clear();
+        windowStart = RecyclerView.NO_POSITION;
+        windowEnd = RecyclerView.NO_POSITION;
+    }
+}
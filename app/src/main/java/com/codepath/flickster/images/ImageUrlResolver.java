@@ -0,0 +1,75 @@
+package com.codepath.flickster.images;
+
+import android.content.Context;
+
+import com.codepath.flickster.R;
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.core.url.TmdbImageUrls;
+import com.codepath.flickster.utils.DeviceDimensionsHelper;
+import com.codepath.flickster.utils.UiUtils;
+
+/**
+ * Works out the width images are displayed at and builds the TMDB URLs of
+ * the smallest size bucket covering it, see {@link TmdbImageUrls}, so low
+ * density devices don't download and decode bitmaps several times bigger
+ * than what ends up on screen.
+ *
+ * Widths are worked out from the display metrics and the item layouts rather
+ * than measured views, so the same movie always resolves to the same URL and
+ * size whether it is being bound or prefetched.
+ *
+ * @author yvastavaus.
+ */
+public class ImageUrlResolver {
+
+    // Share of the row taken by the image in item_movie_now_showing (portrait / landscape).
+    private static final float POSTER_ROW_WIDTH_PORTRAIT = 0.4f;
+    private static final float POSTER_ROW_WIDTH_LANDSCAPE = 0.5f;
+
+    private final int displayWidth;
+    private final int rowWidth;
+    private final boolean isPortrait;
+
+    public ImageUrlResolver(Context context) {
+        this.displayWidth = DeviceDimensionsHelper.getDisplayWidth(context);
+        int rowPadding = 2 * context.getResources().getDimensionPixelSize(R.dimen.movie_item_padding);
+        this.rowWidth = Math.max(displayWidth - rowPadding, 1);
+        this.isPortrait = UiUtils.isPortrait(context);
+    }
+
+    /**
+     * @return width in pixels of the image of a poster row.
+     */
+    public int getPosterRowImageWidth() {
+        float share = isPortrait ? POSTER_ROW_WIDTH_PORTRAIT : POSTER_ROW_WIDTH_LANDSCAPE;
+        return Math.max((int) (rowWidth * share), 1);
+    }
+
+    /**
+     * @return width in pixels of the image of a banner row.
+     */
+    public int getBannerRowImageWidth() {
+        return rowWidth;
+    }
+
+    /**
+     * @return width in pixels of the banner at the top of the details screen.
+     */
+    public int getHeroImageWidth() {
+        return displayWidth;
+    }
+
+    /**
+     * @return url of the poster covering the width or null if the movie has no poster.
+     */
+    public String getPosterUrl(MovieRecord movie, int targetWidth) {
+        return TmdbImageUrls.posterUrl(movie.getRawPosterPath(), targetWidth);
+    }
+
+    /**
+     * @return url of the backdrop covering the width or null if the movie has no backdrop.
+     */
+    public String getBackdropUrl(MovieRecord movie, int targetWidth) {
+        return TmdbImageUrls.backdropUrl(movie.getRawBackdropPath(), targetWidth);
+    }
+}
@@ -0,0 +1,106 @@
+package com.codepath.flickster.images;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.codepath.flickster.metrics.MeteredInputStream;
+import com.codepath.flickster.metrics.Metrics;
+import com.squareup.picasso.UrlConnectionDownloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+/**
+ * Picasso's default downloader, recording for every image whether it came
+ * from the disk cache or the network, the time to the response headers, the
+ * bytes and the time spent reading the body, decode included since the
+ * decoder reads the stream as it goes, except for the rows which
+ * {@link PoolableRequestHandler} reads in full first.
+ *
+ * @author yvastavaus.
+ */
+public class MeteredDownloader extends UrlConnectionDownloader {
+
+    // Set by the platform HTTP cache, e.g. "CACHE 200" or "CONDITIONAL_CACHE 304".
+    private static final String RESPONSE_SOURCE = "X-Android-Response-Source";
+
+    // Connection of the load running on the current thread.
+    private final ThreadLocal<HttpURLConnection> connection = new ThreadLocal<>();
+
+    public MeteredDownloader(Context context) {
+        super(context);
+    }
+
+    @Override
+    protected HttpURLConnection openConnection(Uri path) throws IOException {
+        HttpURLConnection urlConnection = super.openConnection(path);
+        connection.set(urlConnection);
+        return urlConnection;
+    }
+
+    @Override
+    public Response load(Uri uri, int networkPolicy) throws IOException {
+        long startTime = SystemClock.elapsedRealtime();
+        Response response;
+        HttpURLConnection urlConnection;
+        try {
+            response = super.load(uri, networkPolicy);
+        } catch (IOException e) {
+            Metrics.getMetrics().record("image.fetch.error", SystemClock.elapsedRealtime() - startTime);
+            throw e;
+        } finally {
+            urlConnection = connection.get();
+            connection.remove();
+        }
+        if (response.getInputStream() == null) {
+            return response;
+        }
+        boolean cached = urlConnection != null && isFromCache(urlConnection.getHeaderField(RESPONSE_SOURCE));
+        String prefix = cached ? "image.fetch.disk" : "image.fetch.network";
+        Metrics.getMetrics().record(prefix + ".ttfb", SystemClock.elapsedRealtime() - startTime);
+        return new MeteredResponse(new MeteredInputStream(response.getInputStream(), prefix + ".bytes", prefix + ".read"),
+                cached, response.getContentLength());
+    }
+
+    /**
+     * Response telling where it came from, which Picasso keeps to itself.
+     */
+    public static class MeteredResponse extends Response {
+        private final boolean isCached;
+
+        MeteredResponse(InputStream stream, boolean isCached, long contentLength) {
+            super(stream, isCached, contentLength);
+            this.isCached = isCached;
+        }
+
+        /**
+         * @return true if read from the disk cache.
+         */
+        public boolean isCached() {
+            return isCached;
+        }
+    }
+
+    /**
+     * Same reading of the header as Picasso itself.
+     */
+    private static boolean isFromCache(String responseSource) {
+        if (responseSource == null) {
+            return false;
+        }
+        String[] parts = responseSource.split(" ", 2);
+        if ("CACHE".equals(parts[0])) {
+            return true;
+        }
+        if (parts.length == 1) {
+            return false;
+        }
+        try {
+            return "CONDITIONAL_CACHE".equals(parts[0]) && Integer.parseInt(parts[1]) == HttpURLConnection.HTTP_NOT_MODIFIED;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
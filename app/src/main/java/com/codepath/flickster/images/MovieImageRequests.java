@@ -0,0 +1,128 @@
+package com.codepath.flickster.images;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.codepath.flickster.R;
+import com.codepath.flickster.adapters.MovieAdapter;
+import com.codepath.flickster.display.MovieDisplay;
+import com.codepath.flickster.model.Movie;
+import com.codepath.flickster.utils.UiUtils;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+/**
+ * Single place where the image requests of a movie are built.
+ *
+ * Binding and prefetching both go through here so they ask Picasso for the
+ * exact same url, size and transformation, i.e. the same memory cache key.
+ * Row urls come precomputed with the {@link MovieDisplay}.
+ *
+ * Priorities: the hero image first, then the rows bound on screen, then the
+ * prefetches. Row requests share a tag so they can be paused while the list
+ * flings, see {@link RowImagePauser}.
+ *
+ * @author yvastavaus.
+ */
+public class MovieImageRequests {
+
+    private static final int CORNER_RADIUS = 10;
+    private static final int CORNER_MARGIN = 10;
+
+    private final Picasso picasso;
+    private final ImageUrlResolver imageUrlResolver;
+    private final Bitmap.Config bannerBitmapConfig;
+    private final RoundedCornersTransformation roundedCorners;
+    private final boolean isPortrait;
+    private final int posterRowImageWidth;
+    private final int bannerRowImageWidth;
+    // Tag of every row request of this instance, i.e. of one list.
+    private final Object rowTag = new Object();
+
+    public MovieImageRequests(Context context) {
+        this.picasso = Picasso.with(context);
+        this.imageUrlResolver = new ImageUrlResolver(context);
+        this.posterRowImageWidth = imageUrlResolver.getPosterRowImageWidth();
+        this.bannerRowImageWidth = imageUrlResolver.getBannerRowImageWidth();
+        // Banners are opaque, no need for an alpha channel when memory is tight.
+        this.bannerBitmapConfig = context.getResources().getBoolean(R.bool.low_memory_banners)
+                ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        this.roundedCorners = RoundedCornersTransformation.get(CORNER_RADIUS, CORNER_MARGIN, getBackgroundColor(context));
+        this.isPortrait = UiUtils.isPortrait(context);
+    }
+
+    /**
+     * @return background of the theme, what the rounded corners of opaque images are filled with.
+     */
+    private static int getBackgroundColor(Context context) {
+        TypedArray attributes = context.obtainStyledAttributes(new int[]{android.R.attr.colorBackground});
+        int backgroundColor = attributes.getColor(0, Color.BLACK);
+        attributes.recycle();
+        return backgroundColor;
+    }
+
+    public Picasso getPicasso() {
+        return picasso;
+    }
+
+    /**
+     * @return the request of the image shown by the row of the display, with
+     *         rounded corners. Banners and landscape posters are backdrops.
+     */
+    public RequestCreator forRow(MovieDisplay display) {
+        return forRowImage(display).tag(rowTag);
+    }
+
+    /**
+     * @return the request of {@link #forRow(MovieDisplay)}, for a row not bound yet.
+     */
+    public RequestCreator forPrefetch(MovieDisplay display) {
+        return forRowImage(display).priority(Picasso.Priority.LOW);
+    }
+
+    private RequestCreator forRowImage(MovieDisplay display) {
+        if (display.getViewType() == MovieAdapter.BANNER) {
+            return picasso.load(display.getRowImageUrl())
+                    .resize(bannerRowImageWidth, 0).onlyScaleDown().config(bannerBitmapConfig)
+                    .transform(roundedCorners);
+        }
+        RequestCreator request = picasso.load(display.getRowImageUrl())
+                .resize(posterRowImageWidth, 0).onlyScaleDown();
+        if (!isPortrait) {
+            request.config(bannerBitmapConfig);
+        }
+        return request.transform(roundedCorners);
+    }
+
+    /**
+     * Holds back the row requests not started yet, e.g. while the list flings.
+     */
+    public void pauseRows() {
+        picasso.pauseTag(rowTag);
+    }
+
+    public void resumeRows() {
+        picasso.resumeTag(rowTag);
+    }
+
+    /**
+     * Cancels every row request, paused ones included, e.g. when the list goes away.
+     */
+    public void cancelRows() {
+        picasso.resumeTag(rowTag);
+        picasso.cancelTag(rowTag);
+    }
+
+    /**
+     * Full screen width backdrop at the top of the details screen, ahead of
+     * every other image.
+     */
+    public RequestCreator hero(Movie movie) {
+        int width = imageUrlResolver.getHeroImageWidth();
+        return picasso.load(imageUrlResolver.getBackdropUrl(movie, width))
+                .resize(width, 0).onlyScaleDown().config(bannerBitmapConfig)
+                .priority(Picasso.Priority.HIGH);
+    }
+}
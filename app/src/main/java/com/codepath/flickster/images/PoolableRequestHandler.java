@@ -0,0 +1,123 @@
+package com.codepath.flickster.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+import com.squareup.picasso.Transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Downloads the images going through {@link RoundedCornersTransformation}
+ * and decodes them mutable, which Picasso doesn't. The transformation hands
+ * its source back to the {@link BitmapPool}, and the pool can only keep
+ * mutable bitmaps: decodes Picasso doesn't need to scale would be recycled
+ * instead, and the next row would miss.
+ *
+ * Other images are left to Picasso's own handlers.
+ *
+ * @author yvastavaus.
+ */
+public class PoolableRequestHandler extends RequestHandler {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Downloader downloader;
+
+    /**
+     * @param downloader the one given to Picasso.
+     */
+    public PoolableRequestHandler(Downloader downloader) {
+        this.downloader = downloader;
+    }
+
+    @Override
+    public boolean canHandleRequest(Request data) {
+        String scheme = data.uri != null ? data.uri.getScheme() : null;
+        if (!("http".equals(scheme) || "https".equals(scheme)) || data.transformations == null) {
+            return false;
+        }
+        for (Transformation transformation : data.transformations) {
+            if (transformation instanceof RoundedCornersTransformation) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Result load(Request request, int networkPolicy) throws IOException {
+        Downloader.Response response = downloader.load(request.uri, networkPolicy);
+        if (response == null) {
+            return null;
+        }
+        boolean isCached = response instanceof MeteredDownloader.MeteredResponse
+                && ((MeteredDownloader.MeteredResponse) response).isCached();
+        Picasso.LoadedFrom loadedFrom = isCached ? Picasso.LoadedFrom.DISK : Picasso.LoadedFrom.NETWORK;
+        if (response.getBitmap() != null) {
+            return new Result(response.getBitmap(), loadedFrom);
+        }
+        InputStream inputStream = response.getInputStream();
+        if (inputStream == null) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = readFully(inputStream);
+        } finally {
+            inputStream.close();
+        }
+
+        // Bounds first, to only decode the pixels needed at the requested size.
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = getSampleSize(options.outWidth, options.outHeight,
+                request.targetWidth, request.targetHeight);
+        options.inMutable = true;
+        if (request.config != null) {
+            options.inPreferredConfig = request.config;
+        }
+        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (bitmap == null) {
+            throw new IOException("Failed to decode " + request.uri);
+        }
+        return new Result(bitmap, loadedFrom);
+    }
+
+    /**
+     * Same sampling as Picasso: the largest that still covers the target,
+     * Picasso scales the rest of the way.
+     */
+    private static int getSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        if (width <= 0 || height <= 0 || targetWidth == 0 && targetHeight == 0) {
+            return 1;
+        }
+        int sampleSize;
+        if (targetHeight == 0) {
+            sampleSize = width / targetWidth;
+        } else if (targetWidth == 0) {
+            sampleSize = height / targetHeight;
+        } else {
+            sampleSize = Math.min(width / targetWidth, height / targetHeight);
+        }
+        return Math.max(sampleSize, 1);
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,86 @@
+package com.codepath.flickster.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import com.squareup.picasso.Transformation;
+
+import java.util.HashMap;
+
+/**
+ * Rounds the corners of an image, drawing into a bitmap taken from the
+ * {@link BitmapPool} and returning the source to it once done.
+ *
+ * The output keeps the config of the source, so RGB_565 banners stay half
+ * the size. Without an alpha channel the corners and margin can't be
+ * transparent, they are filled with the background color instead.
+ *
+ * Instances are shared, get them through {@link #get(int, int, int)}.
+ *
+ * @author yvastavaus.
+ */
+public class RoundedCornersTransformation implements Transformation {
+
+    private static final HashMap<String, RoundedCornersTransformation> INSTANCES = new HashMap<>();
+
+    private final int radius;
+    private final int margin;
+    private final int backgroundColor;
+    private final String key;
+    private final BitmapPool bitmapPool;
+
+    private RoundedCornersTransformation(int radius, int margin, int backgroundColor, BitmapPool bitmapPool) {
+        this.radius = radius;
+        this.margin = margin;
+        this.backgroundColor = backgroundColor;
+        this.key = "RoundedCornersTransformation(radius=" + radius + ", margin=" + margin
+                + ", background=" + Integer.toHexString(backgroundColor) + ")";
+        this.bitmapPool = bitmapPool;
+    }
+
+    /**
+     * @param radius in pixels.
+     * @param margin in pixels.
+     * @param backgroundColor color the image is shown on, filling the corners of opaque images.
+     * @return the shared transformation.
+     */
+    public static synchronized RoundedCornersTransformation get(int radius, int margin, int backgroundColor) {
+        String instanceKey = radius + ":" + margin + ":" + backgroundColor;
+        RoundedCornersTransformation transformation = INSTANCES.get(instanceKey);
+        if (transformation == null) {
+            transformation = new RoundedCornersTransformation(radius, margin, backgroundColor, BitmapPool.getInstance());
+            INSTANCES.put(instanceKey, transformation);
+        }
+        return transformation;
+    }
+
+    @Override
+    public Bitmap transform(Bitmap source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        Bitmap.Config config = source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap output = bitmapPool.get(width, height, config);
+        if (!output.hasAlpha()) {
+            output.eraseColor(backgroundColor);
+        }
+        Canvas canvas = new Canvas(output);
+        Paint paint = new Paint();
+        paint.setAntiAlias(true);
+        paint.setShader(new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        canvas.drawRoundRect(new RectF(margin, margin, width - margin, height - margin), radius, radius, paint);
+
+        // Picasso expects the source to be released when a new bitmap is returned.
+        bitmapPool.put(source);
+        return output;
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,34 @@
+package com.codepath.flickster.images;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Pauses the image requests of the rows while the list flings, most of those
+ * rows are gone before their image could show. Requests resume, and the ones
+ * still on screen complete, once the list settles or the user touches it.
+ *
+ * @author yvastavaus.
+ */
+public class RowImagePauser extends RecyclerView.OnScrollListener {
+
+    private final MovieImageRequests imageRequests;
+    private boolean isPaused;
+
+    public RowImagePauser(MovieImageRequests imageRequests) {
+        this.imageRequests = imageRequests;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        boolean isFlinging = newState == RecyclerView.SCROLL_STATE_SETTLING;
+        if (isFlinging == isPaused) {
+            return;
+        }
+        isPaused = isFlinging;
+        if (isFlinging) {
+            imageRequests.pauseRows();
+        } else {
+            imageRequests.resumeRows();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.codepath.flickster.metrics;
+
+/**
+ * Distribution of recorded values in power of two buckets.
+ *
+ * Recording is a couple of arithmetic operations and no allocation, at the
+ * cost of percentiles being only precise to the bucket, i.e. within a factor
+ * of two.
+ *
+ * @author yvastavaus.
+ */
+public class Histogram {
+
+    // Bucket 0 holds 0, bucket i holds [2^(i-1), 2^i - 1].
+    private static final int BUCKET_COUNT = 64;
+
+    private final String name;
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public Histogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param value non negative value, negative ones are recorded as 0.
+     */
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return upper bound of the bucket holding the percentile, 0 when empty.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, max);
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (count == 0) {
+            return name + "[count=0]";
+        }
+        return name + "[count=" + count + ", mean=" + (sum / count) + ", min=" + min + ", p50=" + getPercentile(50)
+                + ", p95=" + getPercentile(95) + ", p99=" + getPercentile(99) + ", max=" + max + "]";
+    }
+}
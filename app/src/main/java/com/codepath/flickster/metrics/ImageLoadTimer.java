@@ -0,0 +1,64 @@
+package com.codepath.flickster.metrics;
+
+import android.os.SystemClock;
+
+/**
+ * Times the image load of a bound view, from the request to the Picasso
+ * callback.
+ *
+ * Picasso calls back synchronously, from within {@code into()}, when the
+ * image is in its memory cache. Those loads are recorded under
+ * {@code image.load.memory} and the others under {@code image.load.fetched},
+ * whose disk and network split is recorded by the downloader. Loads
+ * cancelled before completing, e.g. when the view is recycled, are recorded
+ * under {@code image.load.cancelled}.
+ *
+ * NOTE: Main thread only, like the Picasso callbacks.
+ *
+ * @author yvastavaus.
+ */
+public class ImageLoadTimer {
+
+    private long startTime;
+    private boolean isRequesting;
+    private boolean isPending;
+
+    /**
+     * Called right before the request is made, a pending load is dropped.
+     */
+    public void start() {
+        startTime = SystemClock.elapsedRealtime();
+        isRequesting = true;
+        isPending = true;
+    }
+
+    /**
+     * Called right after the request is made.
+     */
+    public void requested() {
+        isRequesting = false;
+    }
+
+    public void onSuccess() {
+        finish(isRequesting ? "image.load.memory" : "image.load.fetched");
+    }
+
+    public void onError() {
+        finish("image.load.error");
+    }
+
+    /**
+     * Called when the request is cancelled, Picasso doesn't call back then.
+     */
+    public void cancel() {
+        finish("image.load.cancelled");
+    }
+
+    private void finish(String metric) {
+        if (!isPending) {
+            return;
+        }
+        isPending = false;
+        Metrics.getMetrics().record(metric, SystemClock.elapsedRealtime() - startTime);
+    }
+}
@@ -0,0 +1,70 @@
+package com.codepath.flickster.metrics;
+
+import android.os.SystemClock;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream and records them, along with the time
+ * from creation to close, once the stream is closed.
+ *
+ * @author yvastavaus.
+ */
+public class MeteredInputStream extends FilterInputStream {
+
+    private final String bytesMetric;
+    private final String durationMetric;
+    private final long startTime = SystemClock.elapsedRealtime();
+    private long byteCount;
+    private boolean closed;
+
+    public MeteredInputStream(InputStream in, String bytesMetric, String durationMetric) {
+        super(in);
+        this.bytesMetric = bytesMetric;
+        this.durationMetric = durationMetric;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            byteCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        int read = super.read(buffer, offset, count);
+        if (read > 0) {
+            byteCount += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        byteCount += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // Bytes read again after a reset would be counted twice.
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            Metrics metrics = Metrics.getMetrics();
+            metrics.record(bytesMetric, byteCount);
+            metrics.record(durationMetric, SystemClock.elapsedRealtime() - startTime);
+        }
+        super.close();
+    }
+}
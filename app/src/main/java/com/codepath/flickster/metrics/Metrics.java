@@ -0,0 +1,121 @@
+package com.codepath.flickster.metrics;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Process wide registry of the {@link Histogram}s, by name.
+ *
+ * Names are dot separated, starting with the stage they measure, e.g.
+ * {@code net.now_playing.parse} or {@code image.load.memory}. Durations are
+ * in milliseconds and sizes in bytes.
+ *
+ * @author yvastavaus.
+ */
+public class Metrics {
+
+    private static final String TAG = Metrics.class.getSimpleName();
+    private static final String DUMP_FILE_NAME = "metrics.txt";
+
+    private static Metrics INSTANCE;
+
+    private final HashMap<String, Histogram> histograms = new HashMap<>();
+
+    public static synchronized Metrics getMetrics() {
+        if (INSTANCE == null) {
+            INSTANCE = new Metrics();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return the histogram of the name, created on first use.
+     */
+    public synchronized Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram(name);
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    public void record(String name, long value) {
+        histogram(name).record(value);
+    }
+
+    /**
+     * @return every histogram, sorted by name.
+     */
+    public synchronized ArrayList<Histogram> getHistograms() {
+        ArrayList<Histogram> sorted = new ArrayList<>(histograms.values());
+        Collections.sort(sorted, new Comparator<Histogram>() {
+            @Override
+            public int compare(Histogram lhs, Histogram rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+        return sorted;
+    }
+
+    public void reset() {
+        for (Histogram histogram : getHistograms()) {
+            histogram.reset();
+        }
+    }
+
+    public void dumpToLog() {
+        for (Histogram histogram : getHistograms()) {
+            Log.i(TAG, histogram.toString());
+        }
+    }
+
+    /**
+     * Writes every histogram, one per line, to the file.
+     */
+    public void dumpToFile(File file) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            for (Histogram histogram : getHistograms()) {
+                writer.println(histogram);
+            }
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("error while writing " + file);
+        }
+    }
+
+    /**
+     * Dumps to logcat and to {@value #DUMP_FILE_NAME} in the app's external
+     * files directory, falling back to the internal one.
+     *
+     * @return the file written or null if it could not be.
+     */
+    public File dump(Context context) {
+        dumpToLog();
+        File directory = context.getExternalFilesDir(null);
+        if (directory == null) {
+            directory = context.getFilesDir();
+        }
+        File file = new File(directory, DUMP_FILE_NAME);
+        try {
+            dumpToFile(file);
+        } catch (IOException e) {
+            Log.e(TAG, "dump: unable to write " + file, e);
+            return null;
+        }
+        Log.i(TAG, "dump: written to " + file);
+        return file;
+    }
+}
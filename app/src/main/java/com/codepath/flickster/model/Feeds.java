@@ -0,0 +1,46 @@
+package com.codepath.flickster.model;
+
+import android.support.annotation.StringDef;
+import android.support.annotation.StringRes;
+
+import com.codepath.flickster.R;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Movie lists of the API shown as tabs, named after their endpoint.
+ *
+ * @author yvastavaus.
+ */
+public final class Feeds {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({NOW_PLAYING, POPULAR, TOP_RATED, UPCOMING})
+    public @interface Feed {}
+
+    public static final String NOW_PLAYING = "now_playing";
+    public static final String POPULAR = "popular";
+    public static final String TOP_RATED = "top_rated";
+    public static final String UPCOMING = "upcoming";
+
+    /**
+     * Every feed, in the order of the tabs.
+     */
+    public static final String[] ALL = {NOW_PLAYING, POPULAR, TOP_RATED, UPCOMING};
+
+    private Feeds() {}
+
+    public static @StringRes int getTitle(@Feed String feed) {
+        switch (feed) {
+            case POPULAR:
+                return R.string.feed_popular;
+            case TOP_RATED:
+                return R.string.feed_top_rated;
+            case UPCOMING:
+                return R.string.feed_upcoming;
+            default:
+                return R.string.feed_now_playing;
+        }
+    }
+}
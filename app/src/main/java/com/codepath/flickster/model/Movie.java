@@ -2,20 +2,15 @@ package com.codepath.flickster.model;
 
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
+import com.codepath.flickster.core.model.MovieFactory;
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.core.model.MovieRecords;
 
 /**
  * @author yvastavaus
  */
-public class Movie implements Parcelable {
-
-    private static final String TAG = Movie.class.getSimpleName();
+public class Movie implements MovieRecord, Parcelable {
 
     private final String backdropPath;
     private final String posterPath;
@@ -24,62 +19,77 @@ public class Movie implements Parcelable {
     private final String releaseDate;
     private final double voteAverage;
     private final int id;
-    private final String PREFIX_POSTER_URL = "https://image.tmdb.org/t/p/w500/%s";
-
-    public Movie(JSONObject jsonObject) throws JSONException {
-        this.posterPath = jsonObject.getString("poster_path");
-        this.originalTitle = jsonObject.getString("original_title");
-        this.overView = jsonObject.getString("overview");
-        this.backdropPath = jsonObject.getString("backdrop_path");
-        this.voteAverage = jsonObject.getDouble("vote_average");
-        this.id = jsonObject.getInt("id");
-        this.releaseDate = jsonObject.getString("release_date");
-    }
-
-
-    public static ArrayList<Movie> fromJsonArray(JSONArray jsonArray) {
-        ArrayList<Movie> moviesList = new ArrayList<>();
 
-        if(jsonArray != null && jsonArray.length() > 0) {
-            for (int i = 0; i < jsonArray.length(); i++) {
-                try {
-                    moviesList.add(new Movie(jsonArray.getJSONObject(i)));
-                } catch (JSONException e) {
-                    Log.e(TAG, "fromJsonArray: error while parsing the movie object at position: " + i, e);
-                }
-            }
+    /**
+     * Creates movies from the fields read by the core parsers and snapshots.
+     */
+    public static final MovieFactory<Movie> FACTORY = new MovieFactory<Movie>() {
+        @Override
+        public Movie create(int id, String posterPath, String backdropPath, String originalTitle,
+                            String overView, String releaseDate, double voteAverage) {
+            return new Movie(id, posterPath, backdropPath, originalTitle, overView, releaseDate, voteAverage);
         }
-        return moviesList;
+    };
+
+    public Movie(int id, String posterPath, String backdropPath, String originalTitle,
+                 String overView, String releaseDate, double voteAverage) {
+        this.id = id;
+        this.posterPath = posterPath;
+        this.backdropPath = backdropPath;
+        this.originalTitle = originalTitle;
+        this.overView = overView;
+        this.releaseDate = releaseDate;
+        this.voteAverage = voteAverage;
     }
 
-    public String getPosterPath() {
-        return String.format(PREFIX_POSTER_URL, posterPath);
+    /**
+     * @return poster path as returned by the API, see {@code ImageUrlResolver} for the full url.
+     */
+    @Override
+    public String getRawPosterPath() {
+        return posterPath;
     }
 
-    public String getBannerPoster() {
-        return String.format(PREFIX_POSTER_URL, backdropPath);
+    /**
+     * @return backdrop path as returned by the API, see {@code ImageUrlResolver} for the full url.
+     */
+    @Override
+    public String getRawBackdropPath() {
+        return backdropPath;
     }
 
+    @Override
     public String getOriginalTitle() {
         return originalTitle;
     }
 
+    @Override
     public String getOverView() {
         return overView;
     }
 
+    @Override
     public double getVoteAverage() {
         return voteAverage;
     }
 
+    @Override
     public int getId() {
         return id;
     }
 
+    @Override
     public String getReleaseDate() {
         return releaseDate;
     }
 
+    /**
+     * @return true if both movies display exactly the same data.
+     */
+    public boolean isSameContent(MovieRecord other) {
+        return MovieRecords.isSameContent(this, other);
+    }
+
     @Override
     public int describeContents() {
         return 0;
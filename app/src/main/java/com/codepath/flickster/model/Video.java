@@ -2,43 +2,30 @@ package com.codepath.flickster.model;
 
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
+import com.codepath.flickster.core.model.VideoFactory;
 
 /**
  * @author yvastavaus
  */
 public class Video implements Parcelable {
 
-    private static final String TAG = Video.class.getSimpleName();
+    /**
+     * Creates videos from the keys read by the core parsers.
+     */
+    public static final VideoFactory<Video> FACTORY = new VideoFactory<Video>() {
+        @Override
+        public Video create(String key) {
+            return new Video(key);
+        }
+    };
 
     private final String key;
 
-    public Video(JSONObject jsonObject) throws JSONException {
-        this.key = jsonObject.getString("key");
+    public Video(String key) {
+        this.key = key;
     }
 
-    public static ArrayList<Video> fromJsonArray(JSONArray jsonArray) {
-        ArrayList<Video> moviesList = new ArrayList<>();
-
-        if(jsonArray != null && jsonArray.length() > 0) {
-            for (int i = 0; i < jsonArray.length(); i++) {
-                try {
-                    moviesList.add(new Video(jsonArray.getJSONObject(i)));
-                } catch (JSONException e) {
-                    Log.e(TAG, "fromJsonArray: error while parsing the video object at position: " + i, e);
-                }
-            }
-        }
-        return moviesList;
-    }
-
-
     public String getKey() {
         return key;
     }
@@ -0,0 +1,19 @@
+package com.codepath.flickster.network;
+
+/**
+ * Handle of a running request, once cancelled its callback is not called.
+ *
+ * @author yvastavaus.
+ */
+public interface Cancellable {
+
+    /**
+     * Handle of a request already completed, e.g. served from memory.
+     */
+    Cancellable DONE = new Cancellable() {
+        @Override
+        public void cancel() {}
+    };
+
+    void cancel();
+}
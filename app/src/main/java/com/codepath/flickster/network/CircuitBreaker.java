@@ -0,0 +1,91 @@
+package com.codepath.flickster.network;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Fails requests to a host fast while it keeps failing, instead of making
+ * every caller wait for its own timeout.
+ *
+ * Opens after a number of failures in a row. Once the cool down is over a
+ * single probe request is let through: its success closes the breaker
+ * again, its failure starts another cool down.
+ *
+ * @author yvastavaus.
+ */
+public class CircuitBreaker {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({CLOSED, OPEN, HALF_OPEN})
+    public @interface State {}
+
+    public static final int CLOSED = 0;
+    public static final int OPEN = 1;
+    public static final int HALF_OPEN = 2;
+
+    private final int failureThreshold;
+    private final long coolDownMillis;
+    private final Clock clock;
+
+    private @State int state = CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    /**
+     * @param failureThreshold failures in a row opening the breaker.
+     * @param coolDownMillis time requests are rejected before a probe is let through.
+     */
+    public CircuitBreaker(int failureThreshold, long coolDownMillis) {
+        this(failureThreshold, coolDownMillis, Clock.ELAPSED_REALTIME);
+    }
+
+    CircuitBreaker(int failureThreshold, long coolDownMillis, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.coolDownMillis = coolDownMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return true if a request may be sent now. When half open, only the
+     *         first caller gets true until the probe completes.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.elapsedRealtime() - openedAt < coolDownMillis) {
+                    return false;
+                }
+                state = HALF_OPEN;
+                openedAt = clock.elapsedRealtime();
+                return true;
+            default:
+                // The probe is already out, another one goes if it never completed (e.g. cancelled).
+                if (clock.elapsedRealtime() - openedAt < coolDownMillis) {
+                    return false;
+                }
+                openedAt = clock.elapsedRealtime();
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = OPEN;
+            openedAt = clock.elapsedRealtime();
+        }
+    }
+
+    public synchronized @State int getState() {
+        return state;
+    }
+}
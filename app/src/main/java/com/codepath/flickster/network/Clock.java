@@ -0,0 +1,24 @@
+package com.codepath.flickster.network;
+
+import android.os.SystemClock;
+
+/**
+ * Time source of the rate limiting, the retries and the circuit breakers,
+ * replaced by the tests.
+ *
+ * @author yvastavaus.
+ */
+interface Clock {
+
+    /**
+     * Milliseconds since boot, see {@link SystemClock#elapsedRealtime()}.
+     */
+    Clock ELAPSED_REALTIME = new Clock() {
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    long elapsedRealtime();
+}
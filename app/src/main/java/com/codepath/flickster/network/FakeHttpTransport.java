@@ -0,0 +1,113 @@
+package com.codepath.flickster.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * In process transport serving canned responses by URL, to run the app or
+ * the network layer without a server.
+ *
+ * Responses are delivered on a background thread after an optional delay,
+ * like a real transport. URLs without a canned response get a 404.
+ *
+ * @author yvastavaus.
+ */
+public class FakeHttpTransport implements HttpTransport {
+
+    private static final String NAME = "fake";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static class CannedResponse {
+        final int statusCode;
+        final Map<String, String> headers;
+        final byte[] body;
+
+        CannedResponse(int statusCode, Map<String, String> headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, CannedResponse> responses = new HashMap<>();
+    private final long delayMillis;
+    private int requestCount;
+
+    /**
+     * @param delayMillis time every response takes to arrive.
+     */
+    public FakeHttpTransport(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Serves a JSON body with a 200 for the URL.
+     */
+    public void respond(String url, String json) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json; charset=utf-8");
+        respond(url, 200, headers, json.getBytes(UTF_8));
+    }
+
+    public synchronized void respond(String url, int statusCode, Map<String, String> headers, byte[] body) {
+        responses.put(url, new CannedResponse(statusCode, headers, body));
+    }
+
+    /**
+     * @return number of requests received so far, cancelled ones included.
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    @Override
+    public Cancellable get(final String url, Map<String, String> headers, final Callback callback) {
+        final CannedResponse cannedResponse;
+        synchronized (this) {
+            requestCount++;
+            cannedResponse = responses.get(url);
+        }
+        final Future<?> future = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    // Cancelled.
+                    return;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    if (cannedResponse == null) {
+                        callback.onResponse(new Response(404, new HashMap<String, String>(), new ByteArrayInputStream(new byte[0])));
+                    } else {
+                        callback.onResponse(new Response(cannedResponse.statusCode, cannedResponse.headers,
+                                new ByteArrayInputStream(cannedResponse.body)));
+                    }
+                } catch (IOException e) {
+                    callback.onFailure(e);
+                }
+            }
+        });
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                future.cancel(true);
+            }
+        };
+    }
+}
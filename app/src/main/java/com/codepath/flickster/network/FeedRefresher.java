@@ -0,0 +1,84 @@
+package com.codepath.flickster.network;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+/**
+ * Refreshes several feeds at once with at most a few requests in flight, so
+ * one refresh fills every tab without the first pages competing with each
+ * other for the connection.
+ *
+ * NOTE: Main thread only.
+ *
+ * @author yvastavaus.
+ */
+public class FeedRefresher {
+
+    /**
+     * Callback once every requested refresh has completed.
+     */
+    public interface Listener {
+        void onIdle();
+    }
+
+    private final int maxParallel;
+    private final LinkedHashSet<MoviePager> pending = new LinkedHashSet<>();
+    private final HashSet<MoviePager> running = new HashSet<>();
+    private Listener listener;
+
+    /**
+     * @param maxParallel refreshes in flight at most.
+     */
+    public FeedRefresher(int maxParallel) {
+        this.maxParallel = maxParallel;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isIdle() {
+        return pending.isEmpty() && running.isEmpty();
+    }
+
+    /**
+     * Queues the refresh of the pager, ignored if it is already queued or running.
+     */
+    public void refresh(MoviePager pager) {
+        if (running.contains(pager)) {
+            return;
+        }
+        pending.add(pager);
+        drain();
+    }
+
+    /**
+     * Drops the queued refreshes and cancels the running ones, the listener
+     * isn't called for them.
+     */
+    public void cancel() {
+        pending.clear();
+        for (MoviePager pager : running) {
+            pager.cancel();
+        }
+        running.clear();
+    }
+
+    private void drain() {
+        while (running.size() < maxParallel && !pending.isEmpty()) {
+            final MoviePager pager = pending.iterator().next();
+            pending.remove(pager);
+            running.add(pager);
+            pager.refresh(new Runnable() {
+                @Override
+                public void run() {
+                    running.remove(pager);
+                    drain();
+                    if (isIdle() && listener != null) {
+                        listener.onIdle();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.codepath.flickster.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Moves HTTP requests and responses, nothing else: caching, parsing and
+ * delivery to the main thread are left to the callers.
+ *
+ * @author yvastavaus.
+ */
+public interface HttpTransport {
+
+    /**
+     * Called once per request on a thread of the transport, never after the
+     * request has been cancelled.
+     */
+    interface Callback {
+        /**
+         * The body belongs to the callback which closes it, possibly later
+         * and on another thread, e.g. once parsed.
+         */
+        void onResponse(Response response) throws IOException;
+
+        void onFailure(IOException e);
+    }
+
+    /**
+     * Status, headers and a body to be read once.
+     */
+    class Response {
+        private final int statusCode;
+        private final Map<String, String> headers;
+        private final InputStream body;
+
+        /**
+         * @param headers first value of every header, names are matched ignoring case.
+         */
+        public Response(int statusCode, Map<String, String> headers, InputStream body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return value of the header, null if missing.
+         */
+        public String getHeader(String name) {
+            return findHeader(headers, name);
+        }
+
+        public InputStream getBody() {
+            return body;
+        }
+
+        public boolean isSuccessful() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+
+        /**
+         * @return value of the header, null if missing or if there are no headers.
+         */
+        public static String findHeader(Map<String, String> headers, String name) {
+            if (headers == null) {
+                return null;
+            }
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey())) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Name the metrics of the transport are recorded under, e.g. "okhttp".
+     */
+    String getName();
+
+    /**
+     * Issues a GET.
+     *
+     * @param headers extra request headers, may be null.
+     * @return handle cancelling the request, the callback is not called afterwards.
+     */
+    Cancellable get(String url, Map<String, String> headers, Callback callback);
+}
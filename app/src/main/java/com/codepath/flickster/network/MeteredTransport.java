@@ -0,0 +1,54 @@
+package com.codepath.flickster.network;
+
+import android.os.SystemClock;
+
+import com.codepath.flickster.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Wraps a transport to record its latency, so transports can be compared
+ * on the same requests.
+ *
+ * Records {@code transport.<name>.headers} (request to response headers),
+ * {@code transport.<name>.complete} (request to body handed over) and
+ * {@code transport.<name>.failed}.
+ *
+ * @author yvastavaus.
+ */
+public class MeteredTransport implements HttpTransport {
+
+    private final HttpTransport transport;
+    private final String metricPrefix;
+
+    public MeteredTransport(HttpTransport transport) {
+        this.transport = transport;
+        this.metricPrefix = "transport." + transport.getName();
+    }
+
+    @Override
+    public String getName() {
+        return transport.getName();
+    }
+
+    @Override
+    public Cancellable get(String url, Map<String, String> headers, final Callback callback) {
+        final long startTime = SystemClock.elapsedRealtime();
+        return transport.get(url, headers, new Callback() {
+            @Override
+            public void onResponse(Response response) throws IOException {
+                Metrics metrics = Metrics.getMetrics();
+                metrics.record(metricPrefix + ".headers", SystemClock.elapsedRealtime() - startTime);
+                callback.onResponse(response);
+                metrics.record(metricPrefix + ".complete", SystemClock.elapsedRealtime() - startTime);
+            }
+
+            @Override
+            public void onFailure(IOException e) {
+                Metrics.getMetrics().record(metricPrefix + ".failed", SystemClock.elapsedRealtime() - startTime);
+                callback.onFailure(e);
+            }
+        });
+    }
+}
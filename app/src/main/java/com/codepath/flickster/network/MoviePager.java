@@ -0,0 +1,225 @@
+package com.codepath.flickster.network;
+
+import android.util.SparseBooleanArray;
+
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.model.Feeds;
+import com.codepath.flickster.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the pages loaded from a feed and merges them into a single
+ * list without duplicates.
+ *
+ * A refresh always starts again from the first page and replaces the list,
+ * responses of a previous generation (e.g. a next page still in flight while
+ * the user refreshes) are dropped.
+ *
+ * @author yvastavaus.
+ */
+public class MoviePager {
+
+    private static final String TAG = MoviePager.class.getSimpleName();
+
+    /**
+     * Callback for the changes made to the list by the pager.
+     */
+    public interface Listener {
+        /**
+         * @param pager pager whose list changed.
+         * @param positionStart position of the first item added.
+         * @param itemCount number of items added.
+         * @param isRefresh true if the whole list has been replaced.
+         */
+        void onPageLoaded(MoviePager pager, int positionStart, int itemCount, boolean isRefresh);
+        void onPageFailed(MoviePager pager, boolean isRefresh);
+    }
+
+    private final NetworkManager networkManager;
+    private final @Feeds.Feed String feed;
+    private final ArrayList<MovieRecord> moviesList;
+    private final SparseBooleanArray loadedIds = new SparseBooleanArray();
+    private Listener listener;
+    private RequestPolicy policy = NetworkManager.FEED_POLICY;
+    // Requests not completed yet, including the superseded ones.
+    private final ArrayList<Cancellable> requests = new ArrayList<>();
+
+    private int page;
+    private int totalPages;
+    private boolean isLoading;
+    private int generation;
+
+    public MoviePager(NetworkManager networkManager, @Feeds.Feed String feed, ArrayList<MovieRecord> moviesList) {
+        this.networkManager = networkManager;
+        this.feed = feed;
+        this.moviesList = moviesList;
+        for (MovieRecord movie : moviesList) {
+            loadedIds.put(movie.getId(), true);
+        }
+    }
+
+    /**
+     * Sets how urgent the following requests are, e.g. lower while the feed
+     * isn't on screen. Requests already sent keep theirs.
+     */
+    public void setPriority(@RequestScheduler.Priority int priority) {
+        policy = NetworkManager.FEED_POLICY.withPriority(priority);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public @Feeds.Feed String getFeed() {
+        return feed;
+    }
+
+    /**
+     * @return the merged list, owned by the pager. Its movies may be swapped
+     *         for equivalent ones, e.g. the rows of a catalog.
+     */
+    public ArrayList<MovieRecord> getMovies() {
+        return moviesList;
+    }
+
+    public boolean isLoading() {
+        return isLoading;
+    }
+
+    public boolean hasMorePages() {
+        return page < totalPages;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    /**
+     * Replaces the list with previously loaded pages, e.g. from the disk cache.
+     * Nothing is reported to the listener.
+     */
+    public void restore(List<? extends MovieRecord> movies, int page, int totalPages) {
+        moviesList.clear();
+        loadedIds.clear();
+        for (MovieRecord movie : movies) {
+            if (!loadedIds.get(movie.getId())) {
+                loadedIds.put(movie.getId(), true);
+                moviesList.add(movie);
+            }
+        }
+        this.page = page;
+        this.totalPages = totalPages;
+    }
+
+    /**
+     * Drops whatever is loaded and fetches the first page again.
+     */
+    public void refresh() {
+        refresh(null);
+    }
+
+    /**
+     * @param onComplete run once the request completes, after the listener,
+     *                   also when the request failed or got superseded.
+     */
+    public void refresh(Runnable onComplete) {
+        requestPage(1, true, onComplete);
+    }
+
+    /**
+     * Fetches the page following the last loaded one, if any and if no other
+     * request is already running.
+     */
+    public void loadNextPage() {
+        if (isLoading || !hasMorePages()) {
+            return;
+        }
+        requestPage(page + 1, false, null);
+    }
+
+    /**
+     * Cancels the requests in flight and their parsing, e.g. when the list
+     * goes away for good. Nothing is reported for them, the completion
+     * callbacks of their refreshes included.
+     */
+    public void cancel() {
+        generation++;
+        isLoading = false;
+        for (Cancellable request : requests) {
+            request.cancel();
+        }
+        requests.clear();
+    }
+
+    private void requestPage(final int requestedPage, final boolean isRefresh, final Runnable onComplete) {
+        final int requestGeneration = ++generation;
+        isLoading = true;
+        PageCallback callback = new PageCallback() {
+            @Override
+            public void onSuccess(ArrayList<Movie> list, int page, int totalPages) {
+                requests.remove(handle);
+                deliverSuccess(requestGeneration, isRefresh, list, page, totalPages);
+                complete(onComplete);
+            }
+
+            @Override
+            public void onFailure() {
+                requests.remove(handle);
+                deliverFailure(requestGeneration, isRefresh);
+                complete(onComplete);
+            }
+        };
+        // Callbacks are always posted, the handle is set before they run.
+        callback.handle = networkManager.getMovies(feed, requestedPage, policy, callback);
+        requests.add(callback.handle);
+    }
+
+    private static abstract class PageCallback implements NetworkManager.RequestCallback {
+        Cancellable handle;
+    }
+
+    private void deliverSuccess(int requestGeneration, boolean isRefresh, ArrayList<Movie> list, int page, int totalPages) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        isLoading = false;
+        if (isRefresh) {
+            moviesList.clear();
+            loadedIds.clear();
+        }
+        int positionStart = moviesList.size();
+        for (MovieRecord movie : list) {
+            if (!loadedIds.get(movie.getId())) {
+                loadedIds.put(movie.getId(), true);
+                moviesList.add(movie);
+            }
+        }
+        this.page = page;
+        this.totalPages = totalPages;
+        if (listener != null) {
+            listener.onPageLoaded(this, positionStart, moviesList.size() - positionStart, isRefresh);
+        }
+    }
+
+    private void deliverFailure(int requestGeneration, boolean isRefresh) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        isLoading = false;
+        if (listener != null) {
+            listener.onPageFailed(this, isRefresh);
+        }
+    }
+
+    private static void complete(Runnable onComplete) {
+        if (onComplete != null) {
+            onComplete.run();
+        }
+    }
+}
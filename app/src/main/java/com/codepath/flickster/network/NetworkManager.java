@@ -1,18 +1,25 @@
 package com.codepath.flickster.network;
 
+import android.net.Uri;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.codepath.flickster.core.json.MovieJsonParser;
+import com.codepath.flickster.core.model.MoviePage;
+import com.codepath.flickster.core.url.TmdbApiUrls;
+import com.codepath.flickster.metrics.Metrics;
+import com.codepath.flickster.model.Feeds;
 import com.codepath.flickster.model.Movie;
 import com.codepath.flickster.model.Video;
-import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.JsonHttpResponseHandler;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
-
-import cz.msebera.android.httpclient.Header;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles all the network calls with the Movie API
@@ -22,18 +29,61 @@ import cz.msebera.android.httpclient.Header;
 public class NetworkManager {
 
     private static final String TAG = NetworkManager.class.getSimpleName();
-    private static NetworkManager INSTANCE;
 
-    private AsyncHttpClient mClient;
-    private static final String NOW_SHOWING_MOVIES = "https://api.themoviedb.org/3/movie/now_playing?api_key=a07e22bc18f5cb106bfe4cc1f83ad8ed";
-    private static final String VIDEO_API = "https://api.themoviedb.org/3/movie/%1$s/videos?api_key=a07e22bc18f5cb106bfe4cc1f83ad8ed";
-    private static final String TRAILER_API = "https://api.themoviedb.org/3/movie/%1$d/trailers?api_key=a07e22bc18f5cb106bfe4cc1f83ad8ed";
+    // Upper bound of the response bodies kept around for revalidation.
+    private static final long RESPONSE_CACHE_SIZE_BYTES = 2 * 1024 * 1024;
+    private static final int VIDEO_CACHE_SIZE = 64;
+    private static final long VIDEO_CACHE_TTL = TimeUnit.MINUTES.toMillis(30);
+
+    // Every API call goes to the same host, a few warm connections cover the parallel ones.
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long CONNECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long READ_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_COOL_DOWN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    // Stays under the rate limit of the API, 40 requests every 10 seconds.
+    private static final int RATE_LIMIT_BURST = 20;
+    private static final double RATE_LIMIT_PER_SECOND = 4;
+    // Prefetches and background syncs leave a few tokens to what the user waits on.
+    private static final int RESERVED_TOKENS = 4;
+    private static final long MAX_DROPPABLE_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final int MAX_DROPPABLE_QUEUED = 8;
+
+    /**
+     * Default policy of {@link #getMovies}, bounds the refresh spinner.
+     */
+    public static final RequestPolicy FEED_POLICY = new RequestPolicy(TimeUnit.SECONDS.toMillis(10), 3, true);
+
+    /**
+     * Default policy of {@link #getVideoLink}, the user waits on it.
+     */
+    public static final RequestPolicy VIDEOS_POLICY = new RequestPolicy(TimeUnit.SECONDS.toMillis(8), 3, true,
+            RequestScheduler.USER_BLOCKING);
+
+    /**
+     * Policy of the videos looked up ahead of the user asking for them.
+     */
+    public static final RequestPolicy PREFETCH_VIDEOS_POLICY = VIDEOS_POLICY.withPriority(RequestScheduler.PREFETCH);
+
+    private volatile HttpTransport transport;
+    // Deadlines, back offs and hedges of the requests in flight, and the queue of the scheduler.
+    private final ScheduledExecutorService requestTimers = Executors.newSingleThreadScheduledExecutor();
+    private final RequestScheduler requestScheduler = new RequestScheduler(
+            new TokenBucket(RATE_LIMIT_BURST, RATE_LIMIT_PER_SECOND), requestTimers, RESERVED_TOKENS,
+            MAX_DROPPABLE_WAIT_MILLIS, MAX_DROPPABLE_QUEUED);
+    private final HashMap<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+    private final ResponseCache responseCache = new ResponseCache(RESPONSE_CACHE_SIZE_BYTES);
+    private final VideoCache videoCache = new VideoCache(VIDEO_CACHE_SIZE, VIDEO_CACHE_TTL);
+    private final SingleFlight<Integer, ArrayList<Video>> videoRequests = new SingleFlight<>();
 
     /**
-     * Interface to handle response from the Movies for Now Showing Database.
+     * Interface to handle a page of a movie feed.
      */
     public interface RequestCallback {
-        void onSuccess(ArrayList<Movie> moviesList);
+        void onSuccess(ArrayList<Movie> moviesList, int page, int totalPages);
         void onFailure();
     }
 
@@ -47,57 +97,235 @@ public class NetworkManager {
     }
 
     private NetworkManager() {
-        this.mClient = new AsyncHttpClient();
+        this.transport = new MeteredTransport(new OkHttpTransport(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MILLIS,
+                CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * Created on first use, the class initialization publishes it safely to every thread.
+     */
+    private static class Holder {
+        static final NetworkManager INSTANCE = new NetworkManager();
     }
 
     public static NetworkManager getNetworkManager() {
-        if(INSTANCE == null) {
-            INSTANCE = new NetworkManager();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Fetches a single page of a feed with the {@link #FEED_POLICY}.
+     */
+    public Cancellable getMovies(@Feeds.Feed String feed, int page, RequestCallback callback) {
+        return getMovies(feed, page, FEED_POLICY, callback);
+    }
+
+    /**
+     * Fetches a single page of a feed.
+     *
+     * @param page 1 based page index as expected by the API.
+     * @param policy deadline, retries and hedging of the request.
+     * @param callback receives the movies of the page along with the paging information.
+     * @return handle cancelling the request and its parsing, the callback is not called afterwards.
+     */
+    public Cancellable getMovies(@Feeds.Feed String feed, final int page, RequestPolicy policy, final RequestCallback callback) {
+        String url = TmdbApiUrls.movies(feed, page);
+        Log.d(TAG, "getMovies: url: " + url);
+        return get(url, feed, policy, new StreamingJsonResponseHandler<MoviePage<Movie>>() {
+            @Override
+            protected MoviePage<Movie> parse(JsonReader reader) throws IOException {
+                return MovieJsonParser.readPage(reader, page, Movie.FACTORY);
+            }
+
+            @Override
+            public void onSuccess(MoviePage<Movie> moviePage) {
+                callback.onSuccess(moviePage.getMovies(), moviePage.getPage(), moviePage.getTotalPages());
+            }
+
+            @Override
+            public void onFailure() {
+                callback.onFailure();
+            }
+        });
+    }
+
+    /**
+     * Fetches the videos of a movie with the {@link #VIDEOS_POLICY}.
+     */
+    public Cancellable getVideoLink(int id, VideoRequestCallback callback) {
+        return getVideoLink(id, VIDEOS_POLICY, callback);
+    }
+
+    /**
+     * Fetches the videos of a movie. Served from memory when the movie has been
+     * looked up recently, concurrent calls for the same movie share a single request.
+     *
+     * NOTE: Must be called from the main thread.
+     *
+     * @param policy deadline, retries and hedging of the request, the one of
+     *               the first caller applies when the request is shared but
+     *               a more urgent caller moves it and its retries up the queue.
+     * @return handle to drop the callback, the request itself is only cancelled
+     *         when no other caller is waiting for it.
+     */
+    public Cancellable getVideoLink(final int id, final RequestPolicy policy, final VideoRequestCallback callback) {
+        ArrayList<Video> cachedVideos = videoCache.get(id);
+        if (cachedVideos != null) {
+            callback.onSuccess(cachedVideos);
+            return Cancellable.DONE;
+        }
+
+        Cancellable call = videoRequests.getCall(id);
+        if (call instanceof RequestScheduler.Ticket) {
+            ((RequestScheduler.Ticket) call).promote(policy.getPriority());
         }
 
-        return INSTANCE;
+        return videoRequests.run(id, new SingleFlight.Callback<ArrayList<Video>>() {
+            @Override
+            public void onSuccess(ArrayList<Video> videoList) {
+                callback.onSuccess(videoList);
+            }
+
+            @Override
+            public void onFailure() {
+                callback.onFailure();
+            }
+        }, new SingleFlight.Call<ArrayList<Video>>() {
+            @Override
+            public Cancellable execute(final SingleFlight.Callback<ArrayList<Video>> flightCallback) {
+                return fetchVideoLink(id, policy, flightCallback);
+            }
+        });
     }
 
-    public void getNowShowingMovies(final RequestCallback callback) {
-        Log.d(TAG, "getNowShowingMovies: url: " + NOW_SHOWING_MOVIES);
-        mClient.get(NOW_SHOWING_MOVIES, new JsonHttpResponseHandler(){
+    private Cancellable fetchVideoLink(final int id, RequestPolicy policy, final SingleFlight.Callback<ArrayList<Video>> callback) {
+        String url = TmdbApiUrls.videos(id);
+        return get(url, "videos", policy, new StreamingJsonResponseHandler<ArrayList<Video>>() {
             @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                try {
-                    ArrayList<Movie> movieList = Movie.fromJsonArray(response.getJSONArray("results"));
-                    callback.onSuccess(movieList);
-                } catch (JSONException e) {
-                    Log.e(TAG, "getNowShowingMovies:: error while parsing movie results");
-                    callback.onFailure();
-                }
+            protected ArrayList<Video> parse(JsonReader reader) throws IOException {
+                return MovieJsonParser.readVideoResults(reader, Video.FACTORY);
+            }
+
+            @Override
+            public void onSuccess(ArrayList<Video> videoList) {
+                videoCache.put(id, videoList);
+                callback.onSuccess(videoList);
             }
 
             @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
+            public void onFailure() {
                 callback.onFailure();
             }
         });
     }
 
-    public void getVideoLink(int id, final VideoRequestCallback callback) {
-        String url = String.format(VIDEO_API, id);
-        mClient.get(url, new JsonHttpResponseHandler(){
+    /**
+     * Swaps the transport requests go through, e.g. for a {@link FakeHttpTransport}.
+     * Requests already issued are not affected. The transport is metered.
+     */
+    public void setTransport(HttpTransport transport) {
+        this.transport = new MeteredTransport(transport);
+    }
+
+    public VideoCache getVideoCache() {
+        return videoCache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Issues a GET through the response cache: fresh entries are parsed without
+     * a request, stale ones turn the request into a conditional one. Requests
+     * going to the network are admitted by the {@link RequestScheduler}.
+     *
+     * @param requestType name the timings of the request are recorded under.
+     * @param policy priority, deadline, retries and hedging of the request, when it goes to the network.
+     * @return handle cancelling the request, the handler is not called afterwards.
+     */
+    private <T> Cancellable get(final String url, final String requestType, final RequestPolicy policy,
+                                final StreamingJsonResponseHandler<T> handler) {
+        handler.startTiming(requestType);
+        final ResponseCache.Entry entry = responseCache.get(url);
+        if (entry != null && entry.isFresh()) {
+            Log.d(TAG, "get: served from cache: " + url);
+            handler.deliverCachedResponse(entry.getBody());
+            return cancelling(handler);
+        }
+        handler.setResponseCache(responseCache, url, entry);
+        final long submittedAt = SystemClock.elapsedRealtime();
+        return requestScheduler.submit(policy.getPriority(), new RequestScheduler.Task() {
+            // Guarded by the task.
+            private @RequestScheduler.Priority int priority = policy.getPriority();
+            private ResilientRequest startedRequest;
+
             @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                try {
-                    ArrayList<Video> movieList = Video.fromJsonArray(response.getJSONArray("results"));
-                    callback.onSuccess(movieList);
-                } catch (JSONException e) {
-                    Log.e(TAG, "getNowShowingMovies:: error while parsing movie results");
-                    callback.onFailure();
+            public Cancellable start() {
+                // The time spent queued counts towards the deadline.
+                long deadlineMillis = policy.getDeadlineMillis() - (SystemClock.elapsedRealtime() - submittedAt);
+                if (deadlineMillis <= 0) {
+                    Metrics.getMetrics().record("net." + requestType + ".deadline_exceeded", 1);
+                    handler.onFailure(new InterruptedIOException("deadline exceeded while queued for " + url));
+                    return cancelling(handler);
                 }
+                final ResilientRequest request;
+                synchronized (this) {
+                    request = new ResilientRequest(transport, requestTimers, requestScheduler, getCircuitBreaker(url),
+                            policy.withDeadline(deadlineMillis).withPriority(priority), "net." + requestType, url,
+                            entry != null ? entry.getConditionalHeaders() : null, handler);
+                    startedRequest = request;
+                }
+                request.start();
+                return new Cancellable() {
+                    @Override
+                    public void cancel() {
+                        handler.cancel();
+                        request.cancel();
+                    }
+                };
             }
 
             @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                callback.onFailure();
+            public void onDropped() {
+                handler.onFailure(new IOException("dropped from the queue: " + url));
+            }
+
+            @Override
+            public void onPromoted(@RequestScheduler.Priority int priority) {
+                ResilientRequest request;
+                synchronized (this) {
+                    this.priority = priority;
+                    request = startedRequest;
+                }
+                if (request != null) {
+                    // Its retries and hedges follow.
+                    request.promote(priority);
+                }
             }
         });
+    }
 
+    private static Cancellable cancelling(final StreamingJsonResponseHandler<?> handler) {
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                handler.cancel();
+            }
+        };
+    }
+
+    /**
+     * @return the breaker shared by every request to the host of the url.
+     */
+    private CircuitBreaker getCircuitBreaker(String url) {
+        String host = Uri.parse(url).getHost();
+        synchronized (circuitBreakers) {
+            CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+            if (circuitBreaker == null) {
+                circuitBreaker = new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_COOL_DOWN_MILLIS);
+                circuitBreakers.put(host, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
     }
 }
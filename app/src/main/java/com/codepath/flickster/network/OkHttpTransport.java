@@ -0,0 +1,142 @@
+package com.codepath.flickster.network;
+
+import com.codepath.flickster.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+/**
+ * Transport backed by a single {@link OkHttpClient}, so every request to a
+ * host shares its pool of keep-alive connections.
+ *
+ * HTTP/2 is negotiated where the platform supports ALPN (Android 5.0+): the
+ * page, trailer and detail requests to the API are then multiplexed over a
+ * single connection and pay for the TLS handshake once.
+ *
+ * Records {@code transport.okhttp.connection.new} and
+ * {@code transport.okhttp.connection.reused} once per request, to check the
+ * pool is doing its job.
+ *
+ * @author yvastavaus.
+ */
+public class OkHttpTransport implements HttpTransport {
+
+    private static final String NAME = "okhttp";
+
+    private final OkHttpClient client;
+    // Connections already seen by a request, weak so closed ones are let go.
+    private final Set<Connection> knownConnections = Collections.newSetFromMap(new WeakHashMap<Connection, Boolean>());
+
+    /**
+     * @param maxIdleConnections idle connections kept alive per client.
+     * @param keepAliveMillis time an idle connection is kept before being closed.
+     * @param connectTimeoutMillis timeout of the TCP and TLS handshakes.
+     * @param readTimeoutMillis timeout between two reads of a response.
+     */
+    public OkHttpTransport(int maxIdleConnections, long keepAliveMillis, long connectTimeoutMillis, long readTimeoutMillis) {
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .addNetworkInterceptor(new Interceptor() {
+                    @Override
+                    public okhttp3.Response intercept(Chain chain) throws IOException {
+                        recordConnection(chain.connection());
+                        return chain.proceed(chain.request());
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @return connections currently open, idle or not.
+     */
+    public int getConnectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    @Override
+    public Cancellable get(String url, Map<String, String> headers, final Callback callback) {
+        Request.Builder builder = new Request.Builder().url(url);
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+        final Call call = client.newCall(builder.build());
+        // Calls beyond the dispatcher's limits wait in its queue, the depth of the network stage.
+        Metrics.getMetrics().record("stage.network.queue", client.dispatcher().queuedCallsCount());
+        call.enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(Call call, okhttp3.Response response) throws IOException {
+                if (call.isCanceled()) {
+                    response.close();
+                    return;
+                }
+                try {
+                    // Closing the body stream releases the response.
+                    callback.onResponse(new Response(response.code(), toMap(response.headers()), response.body().byteStream()));
+                } catch (IOException e) {
+                    // Failed while reading the body.
+                    response.close();
+                    callback.onFailure(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (!call.isCanceled()) {
+                    callback.onFailure(e);
+                }
+            }
+        });
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                call.cancel();
+            }
+        };
+    }
+
+    private void recordConnection(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        boolean isNew;
+        synchronized (knownConnections) {
+            isNew = knownConnections.add(connection);
+        }
+        Metrics.getMetrics().record("transport." + NAME + (isNew ? ".connection.new" : ".connection.reused"), 1);
+    }
+
+    private static Map<String, String> toMap(Headers headers) {
+        Map<String, String> map = new LinkedHashMap<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            if (!map.containsKey(headers.name(i))) {
+                map.put(headers.name(i), headers.value(i));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,68 @@
+package com.codepath.flickster.network;
+
+/**
+ * How hard a request is tried before giving up: its deadline, how many
+ * attempts fit in it and whether a slow attempt is hedged with a second one.
+ * Along with how urgent it is for the {@link RequestScheduler}, the time it
+ * spends queued counts towards the deadline.
+ *
+ * Only meant for idempotent requests, attempts may reach the server twice.
+ *
+ * @author yvastavaus.
+ */
+public class RequestPolicy {
+
+    private final long deadlineMillis;
+    private final int maxAttempts;
+    private final boolean isHedged;
+    private final @RequestScheduler.Priority int priority;
+
+    /**
+     * A {@link RequestScheduler#VISIBLE} request.
+     *
+     * @param deadlineMillis time from the call to the callback, retries included.
+     * @param maxAttempts attempts at most, the first one and hedges included.
+     * @param isHedged true to send a second attempt when the first one is slower than usual.
+     */
+    public RequestPolicy(long deadlineMillis, int maxAttempts, boolean isHedged) {
+        this(deadlineMillis, maxAttempts, isHedged, RequestScheduler.VISIBLE);
+    }
+
+    public RequestPolicy(long deadlineMillis, int maxAttempts, boolean isHedged,
+                         @RequestScheduler.Priority int priority) {
+        this.deadlineMillis = deadlineMillis;
+        this.maxAttempts = maxAttempts;
+        this.isHedged = isHedged;
+        this.priority = priority;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isHedged() {
+        return isHedged;
+    }
+
+    public @RequestScheduler.Priority int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return the same policy with another deadline.
+     */
+    public RequestPolicy withDeadline(long deadlineMillis) {
+        return new RequestPolicy(deadlineMillis, maxAttempts, isHedged, priority);
+    }
+
+    /**
+     * @return the same policy with another priority.
+     */
+    public RequestPolicy withPriority(@RequestScheduler.Priority int priority) {
+        return new RequestPolicy(deadlineMillis, maxAttempts, isHedged, priority);
+    }
+}
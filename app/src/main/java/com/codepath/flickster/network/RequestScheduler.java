@@ -0,0 +1,342 @@
+package com.codepath.flickster.network;
+
+import android.support.annotation.IntDef;
+
+import com.codepath.flickster.metrics.Metrics;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits requests through a {@link TokenBucket}, the most urgent first, so
+ * speculative traffic never makes the user wait on the rate limit of the API.
+ *
+ * Requests start right away while tokens are available and nothing more
+ * urgent is waiting, otherwise they queue by {@link Priority}. The droppable
+ * classes ({@link #PREFETCH} and {@link #BACKGROUND_SYNC}) leave a few
+ * tokens to the others, and are dropped once they have waited too long or
+ * when their queue is full.
+ *
+ * Records {@code net.queue_wait.<class>} and {@code net.dropped.<class>}.
+ *
+ * @author yvastavaus.
+ */
+public class RequestScheduler {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({USER_BLOCKING, VISIBLE, PREFETCH, BACKGROUND_SYNC})
+    public @interface Priority {}
+
+    /** The user waits on it, e.g. a trailer tap. */
+    public static final int USER_BLOCKING = 0;
+    /** Fills what is on screen, e.g. the feed being shown. */
+    public static final int VISIBLE = 1;
+    /** Speculative, for what may be shown next. */
+    public static final int PREFETCH = 2;
+    /** Keeps what isn't shown up to date. */
+    public static final int BACKGROUND_SYNC = 3;
+
+    private static final String[] CLASS_NAMES = {"user_blocking", "visible", "prefetch", "background_sync"};
+
+    /**
+     * Work admitted by the scheduler.
+     */
+    public interface Task {
+        /**
+         * Sends the request, on the thread submitting it or on the one of the scheduler.
+         *
+         * @return handle cancelling it.
+         */
+        Cancellable start();
+
+        /**
+         * Called instead of {@link #start()} when the request is dropped from the queue.
+         */
+        void onDropped();
+
+        /**
+         * Called when the request moves up to a more urgent class, queued or
+         * already started, e.g. for its retries to follow.
+         */
+        void onPromoted(@Priority int priority);
+    }
+
+    private final TokenBucket tokenBucket;
+    private final ScheduledExecutorService executor;
+    private final Clock clock;
+    private final int reservedTokens;
+    private final long maxDroppableWaitMillis;
+    private final int maxDroppableQueued;
+
+    private final ArrayDeque<Ticket>[] queues;
+    private ScheduledFuture<?> drainTimer;
+
+    /**
+     * @param executor thread the queued requests start on.
+     * @param reservedTokens tokens the droppable classes leave to the others.
+     * @param maxDroppableWaitMillis queue wait after which a droppable request is dropped.
+     * @param maxDroppableQueued requests at most in the queue of a droppable class, the oldest go first.
+     */
+    public RequestScheduler(TokenBucket tokenBucket, ScheduledExecutorService executor, int reservedTokens,
+                            long maxDroppableWaitMillis, int maxDroppableQueued) {
+        this(tokenBucket, executor, reservedTokens, maxDroppableWaitMillis, maxDroppableQueued, Clock.ELAPSED_REALTIME);
+    }
+
+    @SuppressWarnings("unchecked")
+    RequestScheduler(TokenBucket tokenBucket, ScheduledExecutorService executor, int reservedTokens,
+                     long maxDroppableWaitMillis, int maxDroppableQueued, Clock clock) {
+        this.tokenBucket = tokenBucket;
+        this.executor = executor;
+        this.clock = clock;
+        this.reservedTokens = reservedTokens;
+        this.maxDroppableWaitMillis = maxDroppableWaitMillis;
+        this.maxDroppableQueued = maxDroppableQueued;
+        this.queues = new ArrayDeque[CLASS_NAMES.length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * A request going through the scheduler.
+     */
+    public class Ticket implements Cancellable {
+        private @Priority int priority;
+        private final Task task;
+        private final long queuedAt = clock.elapsedRealtime();
+        // Guarded by the scheduler.
+        private boolean isQueued;
+        // Guarded by the ticket.
+        private boolean cancelled;
+        private Cancellable handle;
+
+        Ticket(@Priority int priority, Task task) {
+            this.priority = priority;
+            this.task = task;
+        }
+
+        /**
+         * Moves the request up to the given class, e.g. when the user starts
+         * waiting on a prefetch. A queued request changes queue, a started one
+         * is told through {@link Task#onPromoted(int)}.
+         */
+        public void promote(@Priority int priority) {
+            boolean wasQueued;
+            synchronized (RequestScheduler.this) {
+                if (priority >= this.priority) {
+                    return;
+                }
+                wasQueued = isQueued;
+                if (wasQueued) {
+                    queues[this.priority].remove(this);
+                    queues[priority].addLast(this);
+                }
+                this.priority = priority;
+            }
+            task.onPromoted(priority);
+            if (wasQueued) {
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (RequestScheduler.this) {
+                if (isQueued) {
+                    isQueued = false;
+                    queues[priority].remove(this);
+                }
+            }
+            Cancellable running;
+            synchronized (this) {
+                cancelled = true;
+                running = handle;
+            }
+            if (running != null) {
+                running.cancel();
+            }
+        }
+
+        private void start() {
+            Metrics.getMetrics().record("net.queue_wait." + CLASS_NAMES[priority],
+                    clock.elapsedRealtime() - queuedAt);
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+            }
+            Cancellable started = task.start();
+            synchronized (this) {
+                if (!cancelled) {
+                    handle = started;
+                    return;
+                }
+            }
+            started.cancel();
+        }
+
+        private void drop() {
+            Metrics.getMetrics().record("net.dropped." + CLASS_NAMES[priority], 1);
+            task.onDropped();
+        }
+    }
+
+    /**
+     * Starts the task now if the rate limit allows it, queues it otherwise.
+     *
+     * @return handle cancelling the request, whether queued or started.
+     */
+    public Ticket submit(@Priority int priority, Task task) {
+        Ticket ticket = new Ticket(priority, task);
+        ArrayList<Ticket> dropped = null;
+        boolean isAdmitted = false;
+        synchronized (this) {
+            if (!hasQueuedUpTo(priority) && tokenBucket.tryAcquire(tokensNeeded(priority))) {
+                isAdmitted = true;
+            } else {
+                ticket.isQueued = true;
+                queues[priority].addLast(ticket);
+                if (isDroppable(priority) && queues[priority].size() > maxDroppableQueued) {
+                    dropped = new ArrayList<>(1);
+                    Ticket oldest = queues[priority].pollFirst();
+                    oldest.isQueued = false;
+                    dropped.add(oldest);
+                }
+                scheduleDrainLocked();
+            }
+        }
+        if (isAdmitted) {
+            ticket.start();
+        }
+        dropAll(dropped);
+        return ticket;
+    }
+
+    /**
+     * @return time the rate limit takes to allow one more request.
+     */
+    public long getMillisPerToken() {
+        return tokenBucket.getMillisPerToken();
+    }
+
+    /**
+     * Starts the queued requests the tokens allow, most urgent first, and
+     * drops the droppable ones that have waited too long.
+     */
+    private void drain() {
+        ArrayList<Ticket> admitted = new ArrayList<>();
+        ArrayList<Ticket> dropped = new ArrayList<>();
+        synchronized (this) {
+            drainTimer = null;
+            dropExpiredLocked(dropped);
+            for (int priority = 0; priority < queues.length; priority++) {
+                ArrayDeque<Ticket> queue = queues[priority];
+                while (!queue.isEmpty() && tokenBucket.tryAcquire(tokensNeeded(priority))) {
+                    Ticket ticket = queue.pollFirst();
+                    ticket.isQueued = false;
+                    admitted.add(ticket);
+                }
+                if (!queue.isEmpty()) {
+                    // Less urgent classes need at least as many tokens.
+                    break;
+                }
+            }
+            scheduleDrainLocked();
+        }
+        for (Ticket ticket : admitted) {
+            ticket.start();
+        }
+        dropAll(dropped);
+    }
+
+    private void dropExpiredLocked(ArrayList<Ticket> dropped) {
+        long expiredBefore = clock.elapsedRealtime() - maxDroppableWaitMillis;
+        for (int priority = 0; priority < queues.length; priority++) {
+            if (!isDroppable(priority)) {
+                continue;
+            }
+            Iterator<Ticket> iterator = queues[priority].iterator();
+            while (iterator.hasNext()) {
+                Ticket ticket = iterator.next();
+                // Promotions aside, queues are in the order of arrival.
+                if (ticket.queuedAt > expiredBefore) {
+                    break;
+                }
+                iterator.remove();
+                ticket.isQueued = false;
+                dropped.add(ticket);
+            }
+        }
+    }
+
+    /**
+     * Wakes up once the most urgent queued request can start, or a droppable
+     * one expires.
+     */
+    private void scheduleDrainLocked() {
+        long delay = Long.MAX_VALUE;
+        boolean hasQueued = false;
+        for (int priority = 0; priority < queues.length; priority++) {
+            ArrayDeque<Ticket> queue = queues[priority];
+            if (queue.isEmpty()) {
+                continue;
+            }
+            if (!hasQueued) {
+                hasQueued = true;
+                delay = tokenBucket.getMillisUntil(tokensNeeded(priority));
+            }
+            if (isDroppable(priority)) {
+                long expiresIn = queue.peekFirst().queuedAt + maxDroppableWaitMillis - clock.elapsedRealtime();
+                delay = Math.min(delay, expiresIn);
+            }
+        }
+        if (!hasQueued) {
+            return;
+        }
+        delay = Math.max(delay, 0);
+        if (drainTimer != null) {
+            if (drainTimer.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+                return;
+            }
+            drainTimer.cancel(false);
+        }
+        drainTimer = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean hasQueuedUpTo(@Priority int priority) {
+        for (int i = 0; i <= priority; i++) {
+            if (!queues[i].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int tokensNeeded(@Priority int priority) {
+        return isDroppable(priority) ? 1 + reservedTokens : 1;
+    }
+
+    private static boolean isDroppable(@Priority int priority) {
+        return priority >= PREFETCH;
+    }
+
+    private static void dropAll(ArrayList<Ticket> tickets) {
+        if (tickets == null) {
+            return;
+        }
+        for (Ticket ticket : tickets) {
+            ticket.drop();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.codepath.flickster.network;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+
+/**
+ * Requests started on behalf of a screen, cancelled together when the screen
+ * goes away so their callbacks don't run against destroyed views.
+ *
+ * A screen re-created for a configuration change, e.g. a rotation, should
+ * end its previous scope with {@link #cancelAfterRelaunch()}: the new
+ * instance starts its requests first and joins the shared ones still in
+ * flight (see {@link NetworkManager#getVideoLink(int, NetworkManager.VideoRequestCallback)})
+ * instead of starting them again.
+ *
+ * NOTE: Main thread only.
+ *
+ * @author yvastavaus.
+ */
+public class RequestScope implements Cancellable {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Cancellable> requests = new ArrayList<>();
+    private boolean isCancelled;
+
+    /**
+     * Ties the request to the scope, cancelled right away if the scope already
+     * is. Completed requests should be {@link #remove removed}.
+     *
+     * @return the request.
+     */
+    public <T extends Cancellable> T add(T request) {
+        if (isCancelled) {
+            request.cancel();
+        } else if (request != Cancellable.DONE) {
+            requests.add(request);
+        }
+        return request;
+    }
+
+    /**
+     * Lets go of a request once its callback has run.
+     */
+    public void remove(Cancellable request) {
+        requests.remove(request);
+    }
+
+    /**
+     * @return true once the scope has ended, callbacks not going through a
+     *         request of the scope (e.g. disk loads) check it before touching views.
+     */
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    @Override
+    public void cancel() {
+        isCancelled = true;
+        for (Cancellable request : requests) {
+            request.cancel();
+        }
+        requests.clear();
+    }
+
+    /**
+     * Ends the scope now but only cancels its requests once the messages
+     * already queued on the main thread have run, i.e. after the re-created
+     * screen has started its own requests.
+     */
+    public void cancelAfterRelaunch() {
+        isCancelled = true;
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                cancel();
+            }
+        });
+    }
+}
@@ -0,0 +1,481 @@
+package com.codepath.flickster.network;
+
+import com.codepath.flickster.metrics.Histogram;
+import com.codepath.flickster.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GET sent through a transport following a {@link RequestPolicy}:
+ * <ul>
+ *     <li>the callback is called by the deadline, failing if nothing answered,</li>
+ *     <li>failed attempts (I/O errors, 5xx) are retried after a jittered
+ *     exponential back off, as long as the next attempt fits in the deadline,</li>
+ *     <li>a 429 is retried after its {@code Retry-After}, or the time the rate
+ *     limit takes to refill a token, and stops the hedging,</li>
+ *     <li>if hedged, a second attempt is sent once the first one is slower than
+ *     the 95th percentile of the previous ones, the first to answer wins,</li>
+ *     <li>nothing is sent while the circuit breaker of the host is open.</li>
+ * </ul>
+ *
+ * The first attempt is admitted by the caller, retries and hedges go through
+ * the {@link RequestScheduler} like any other request and take a token each,
+ * in the class of the request, which {@link #promote(int)} moves up.
+ *
+ * Records {@code <prefix>.attempt} (latency of the winning attempt),
+ * {@code <prefix>.attempts}, {@code <prefix>.hedge_won},
+ * {@code <prefix>.throttled}, {@code <prefix>.deadline_exceeded} and
+ * {@code <prefix>.rejected}.
+ *
+ * @author yvastavaus.
+ */
+class ResilientRequest implements Cancellable {
+
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+    // Below this the percentile says more about the buckets than the latency.
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final long MIN_HEDGE_DELAY_MILLIS = 50;
+    private static final Random RANDOM = new Random();
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    // Attempt failed without asking for a given wait.
+    private static final long NO_RETRY_AFTER = -1;
+
+    private final HttpTransport transport;
+    private final ScheduledExecutorService scheduler;
+    private final RequestScheduler requestScheduler;
+    private final CircuitBreaker circuitBreaker;
+    private final RequestPolicy policy;
+    private final String metricPrefix;
+    private final String url;
+    private final Map<String, String> headers;
+    private final HttpTransport.Callback callback;
+    private final Clock clock;
+
+    private final ArrayList<Attempt> inFlight = new ArrayList<>(2);
+    private int attemptCount;
+    private boolean finished;
+    // Set by a 429, no more hedges.
+    private boolean isThrottled;
+    private long deadlineAt;
+    private ScheduledFuture<?> deadlineTimer;
+    private ScheduledFuture<?> hedgeTimer;
+    private ScheduledFuture<?> retryTimer;
+    // Retry or hedge waiting on the request scheduler.
+    private RequestScheduler.Ticket queuedAttempt;
+    private @RequestScheduler.Priority int priority;
+
+    /**
+     * @param metricPrefix prefix of the metrics of the request, e.g. "net.videos".
+     * @param callback called at most once, on a thread of the transport or of the scheduler.
+     */
+    ResilientRequest(HttpTransport transport, ScheduledExecutorService scheduler, RequestScheduler requestScheduler,
+                     CircuitBreaker circuitBreaker, RequestPolicy policy, String metricPrefix, String url,
+                     Map<String, String> headers, HttpTransport.Callback callback) {
+        this(transport, scheduler, requestScheduler, circuitBreaker, policy, metricPrefix, url, headers, callback,
+                Clock.ELAPSED_REALTIME);
+    }
+
+    ResilientRequest(HttpTransport transport, ScheduledExecutorService scheduler, RequestScheduler requestScheduler,
+                     CircuitBreaker circuitBreaker, RequestPolicy policy, String metricPrefix, String url,
+                     Map<String, String> headers, HttpTransport.Callback callback, Clock clock) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.requestScheduler = requestScheduler;
+        this.circuitBreaker = circuitBreaker;
+        this.policy = policy;
+        this.metricPrefix = metricPrefix;
+        this.url = url;
+        this.headers = headers;
+        this.callback = callback;
+        this.clock = clock;
+        this.priority = policy.getPriority();
+    }
+
+    /**
+     * Sends the first attempt, the caller has it admitted by the request scheduler.
+     */
+    void start() {
+        synchronized (this) {
+            deadlineAt = clock.elapsedRealtime() + policy.getDeadlineMillis();
+            deadlineTimer = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    onDeadline();
+                }
+            }, policy.getDeadlineMillis(), TimeUnit.MILLISECONDS);
+        }
+        sendAttempt(false);
+    }
+
+    /**
+     * Moves the retries and hedges of the request up to the given class, the
+     * one already queued included, e.g. when the user starts waiting on a prefetch.
+     */
+    void promote(@RequestScheduler.Priority int priority) {
+        RequestScheduler.Ticket ticket;
+        synchronized (this) {
+            if (finished || priority >= this.priority) {
+                return;
+            }
+            this.priority = priority;
+            ticket = queuedAttempt;
+        }
+        if (ticket != null) {
+            ticket.promote(priority);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        ArrayList<Attempt> attempts;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            attempts = finishLocked();
+        }
+        cancelAll(attempts);
+    }
+
+    private void sendAttempt(boolean isHedge) {
+        Attempt attempt = null;
+        synchronized (this) {
+            if (finished || (isHedge && (inFlight.isEmpty() || isThrottled))) {
+                // Done, the hedged attempt failed and a retry is on its way, or the host asked to slow down.
+                return;
+            }
+            if (circuitBreaker.allowRequest()) {
+                attemptCount++;
+                attempt = new Attempt(isHedge);
+                inFlight.add(attempt);
+                if (attemptCount == 1 && policy.isHedged() && policy.getMaxAttempts() > 1) {
+                    scheduleHedgeLocked();
+                }
+            } else if (!inFlight.isEmpty()) {
+                // No hedge while the host is failing, the attempt in flight goes on.
+                return;
+            } else {
+                finishLocked();
+            }
+        }
+        if (attempt == null) {
+            Metrics.getMetrics().record(metricPrefix + ".rejected", 1);
+            callback.onFailure(new IOException("circuit open, not sending " + url));
+            return;
+        }
+        attempt.setHandle(transport.get(url, headers, attempt));
+    }
+
+    /**
+     * Sends a retry or a hedge once the request scheduler admits it.
+     */
+    private void submitAttempt(final boolean isHedge) {
+        int submittedPriority;
+        synchronized (this) {
+            if (finished || (isHedge && (inFlight.isEmpty() || isThrottled))) {
+                return;
+            }
+            submittedPriority = priority;
+        }
+        RequestScheduler.Ticket ticket = requestScheduler.submit(submittedPriority, new RequestScheduler.Task() {
+            @Override
+            public Cancellable start() {
+                synchronized (ResilientRequest.this) {
+                    queuedAttempt = null;
+                }
+                sendAttempt(isHedge);
+                // The attempt is cancelled along with the request.
+                return Cancellable.DONE;
+            }
+
+            @Override
+            public void onDropped() {
+                onAttemptDropped(isHedge);
+            }
+
+            @Override
+            public void onPromoted(@RequestScheduler.Priority int priority) {
+                // Only ever promoted by the request, which already follows the new class.
+            }
+        });
+        boolean isFinished;
+        int currentPriority;
+        synchronized (this) {
+            isFinished = finished;
+            if (!finished) {
+                queuedAttempt = ticket;
+            }
+            currentPriority = priority;
+        }
+        if (isFinished) {
+            ticket.cancel();
+        } else if (currentPriority < submittedPriority) {
+            // Promoted while being submitted.
+            ticket.promote(currentPriority);
+        }
+    }
+
+    private void scheduleHedgeLocked() {
+        Histogram latency = Metrics.getMetrics().histogram(metricPrefix + ".attempt");
+        if (latency.getCount() < MIN_HEDGE_SAMPLES) {
+            return;
+        }
+        long delay = Math.max(latency.getPercentile(95), MIN_HEDGE_DELAY_MILLIS);
+        if (delay >= deadlineAt - clock.elapsedRealtime()) {
+            return;
+        }
+        hedgeTimer = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                submitAttempt(true);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void onAttemptResponse(Attempt attempt, HttpTransport.Response response) {
+        int statusCode = response.getStatusCode();
+        if (statusCode == HTTP_TOO_MANY_REQUESTS) {
+            closeQuietly(response.getBody());
+            Metrics.getMetrics().record(metricPrefix + ".throttled", 1);
+            long retryAfter = parseRetryAfterMillis(response.getHeader(HEADER_RETRY_AFTER), System.currentTimeMillis());
+            onAttemptFailed(attempt, new IOException("HTTP " + statusCode + " from " + url),
+                    retryAfter != NO_RETRY_AFTER ? retryAfter : requestScheduler.getMillisPerToken());
+            return;
+        }
+        if (statusCode >= 500) {
+            closeQuietly(response.getBody());
+            onAttemptFailed(attempt, new IOException("HTTP " + statusCode + " from " + url), NO_RETRY_AFTER);
+            return;
+        }
+        // The host answered, whatever the status.
+        circuitBreaker.onSuccess();
+        ArrayList<Attempt> losers;
+        int attempts;
+        synchronized (this) {
+            if (finished) {
+                closeQuietly(response.getBody());
+                return;
+            }
+            inFlight.remove(attempt);
+            attempts = attemptCount;
+            losers = finishLocked();
+        }
+        cancelAll(losers);
+        Metrics metrics = Metrics.getMetrics();
+        metrics.record(metricPrefix + ".attempt", clock.elapsedRealtime() - attempt.startTime);
+        metrics.record(metricPrefix + ".attempts", attempts);
+        if (attempt.isHedge) {
+            metrics.record(metricPrefix + ".hedge_won", 1);
+        }
+        try {
+            callback.onResponse(response);
+        } catch (IOException e) {
+            // Too late to retry, part of the body may have been handled already.
+            callback.onFailure(e);
+        }
+    }
+
+    /**
+     * @param retryAfterMillis wait asked for by the host before the next
+     *        attempt, {@link #NO_RETRY_AFTER} to back off as usual. A
+     *        throttled attempt leaves the circuit breaker alone, the host
+     *        is up and only asks to slow down.
+     */
+    private void onAttemptFailed(Attempt attempt, IOException e, long retryAfterMillis) {
+        if (retryAfterMillis == NO_RETRY_AFTER) {
+            circuitBreaker.onFailure();
+        }
+        int attempts;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            inFlight.remove(attempt);
+            if (retryAfterMillis != NO_RETRY_AFTER) {
+                isThrottled = true;
+                cancelTimer(hedgeTimer);
+            }
+            if (!inFlight.isEmpty()) {
+                // The other attempt may still answer.
+                return;
+            }
+            if (attemptCount < policy.getMaxAttempts()) {
+                long delay = retryAfterMillis != NO_RETRY_AFTER ? retryAfterMillis : backoffMillis(attemptCount);
+                if (delay < deadlineAt - clock.elapsedRealtime()) {
+                    cancelTimer(hedgeTimer);
+                    retryTimer = scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            submitAttempt(false);
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+            attempts = attemptCount;
+            finishLocked();
+        }
+        Metrics.getMetrics().record(metricPrefix + ".attempts", attempts);
+        callback.onFailure(e);
+    }
+
+    /**
+     * A queued hedge is only given up, a queued retry fails the request.
+     */
+    private void onAttemptDropped(boolean isHedge) {
+        int attempts;
+        synchronized (this) {
+            queuedAttempt = null;
+            if (finished || isHedge) {
+                return;
+            }
+            attempts = attemptCount;
+            finishLocked();
+        }
+        Metrics.getMetrics().record(metricPrefix + ".attempts", attempts);
+        callback.onFailure(new IOException("retry dropped from the queue: " + url));
+    }
+
+    private void onDeadline() {
+        ArrayList<Attempt> attempts;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            attempts = finishLocked();
+        }
+        cancelAll(attempts);
+        Metrics.getMetrics().record(metricPrefix + ".deadline_exceeded", 1);
+        callback.onFailure(new InterruptedIOException("deadline of " + policy.getDeadlineMillis() + "ms exceeded for " + url));
+    }
+
+    /**
+     * Marks the request as finished and stops its timers.
+     *
+     * @return the attempts still in flight, to be cancelled outside of the lock.
+     */
+    private ArrayList<Attempt> finishLocked() {
+        finished = true;
+        cancelTimer(deadlineTimer);
+        cancelTimer(hedgeTimer);
+        cancelTimer(retryTimer);
+        if (queuedAttempt != null) {
+            // Only takes the lock of the request scheduler.
+            queuedAttempt.cancel();
+            queuedAttempt = null;
+        }
+        ArrayList<Attempt> attempts = new ArrayList<>(inFlight);
+        inFlight.clear();
+        return attempts;
+    }
+
+    /**
+     * Full jitter: uniformly random between 0 and the exponential back off.
+     *
+     * @param retry 1 for the first retry.
+     */
+    private static long backoffMillis(int retry) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(retry - 1, 10));
+        return (long) (RANDOM.nextDouble() * ceiling);
+    }
+
+    /**
+     * @param retryAfter value of the header, delay in seconds or HTTP date.
+     * @param now current wall clock time, for a date.
+     * @return the wait asked for, {@link #NO_RETRY_AFTER} if the header is
+     *         missing or invalid.
+     */
+    static long parseRetryAfterMillis(String retryAfter, long now) {
+        if (retryAfter == null) {
+            return NO_RETRY_AFTER;
+        }
+        String value = retryAfter.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds >= 0 ? TimeUnit.SECONDS.toMillis(seconds) : NO_RETRY_AFTER;
+        } catch (NumberFormatException ignored) {
+        }
+        SimpleDateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDate.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(httpDate.parse(value).getTime() - now, 0);
+        } catch (ParseException e) {
+            return NO_RETRY_AFTER;
+        }
+    }
+
+    private static void cancelTimer(ScheduledFuture<?> timer) {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    private static void cancelAll(ArrayList<Attempt> attempts) {
+        for (Attempt attempt : attempts) {
+            attempt.cancel();
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * A single request sent through the transport.
+     */
+    private class Attempt implements HttpTransport.Callback {
+        final boolean isHedge;
+        final long startTime = clock.elapsedRealtime();
+        private Cancellable handle;
+        private boolean cancelled;
+
+        Attempt(boolean isHedge) {
+            this.isHedge = isHedge;
+        }
+
+        synchronized void setHandle(Cancellable handle) {
+            if (cancelled) {
+                handle.cancel();
+            } else {
+                this.handle = handle;
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (handle != null) {
+                handle.cancel();
+            }
+        }
+
+        @Override
+        public void onResponse(HttpTransport.Response response) {
+            onAttemptResponse(this, response);
+        }
+
+        @Override
+        public void onFailure(IOException e) {
+            onAttemptFailed(this, e, NO_RETRY_AFTER);
+        }
+    }
+}
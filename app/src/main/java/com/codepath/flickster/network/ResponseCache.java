@@ -0,0 +1,238 @@
+package com.codepath.flickster.network;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In memory HTTP response cache keyed by URL.
+ *
+ * Bodies are kept along with their validators ({@code ETag},
+ * {@code Last-Modified}) and freshness ({@code Cache-Control: max-age}).
+ * Fresh entries are served without a request, stale ones are revalidated
+ * with a conditional request and reused on a {@code 304 Not Modified}.
+ * The total size of the bodies is capped, least recently used entries are
+ * evicted first.
+ *
+ * @author yvastavaus.
+ */
+public class ResponseCache {
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private static final String DIRECTIVE_MAX_AGE = "max-age=";
+    private static final String DIRECTIVE_NO_STORE = "no-store";
+    private static final String DIRECTIVE_NO_CACHE = "no-cache";
+
+    /**
+     * A cached response body.
+     */
+    public static class Entry {
+        private final byte[] body;
+        private final String etag;
+        private final String lastModified;
+        private final long expiresAt;
+
+        Entry(byte[] body, String etag, String lastModified, long expiresAt) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+        /**
+         * @return headers turning a request into a conditional one, null if
+         *         the entry has no validators.
+         */
+        public Map<String, String> getConditionalHeaders() {
+            Map<String, String> headers = new HashMap<>(2);
+            if (etag != null) {
+                headers.put(HEADER_IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                headers.put(HEADER_IF_MODIFIED_SINCE, lastModified);
+            }
+            return headers.isEmpty() ? null : headers;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxSizeBytes;
+    private long sizeBytes;
+
+    private int hitCount;
+    private int conditionalHitCount;
+    private int missCount;
+    private int storeCount;
+    private int evictionCount;
+
+    public ResponseCache(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Looks up an entry and records a hit if it can be served as is, a miss
+     * if nothing is cached. Stale entries count once the host answers, see
+     * {@link #revalidate} and {@link #recordStaleMiss()}.
+     *
+     * @return the entry, fresh or stale, or null if nothing is cached.
+     */
+    public synchronized Entry get(String url) {
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            missCount++;
+        } else if (entry.isFresh()) {
+            hitCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * @return true if a response with these headers may be stored at all.
+     */
+    public static boolean isCacheable(Map<String, String> headers) {
+        String cacheControl = findHeader(headers, HEADER_CACHE_CONTROL);
+        if (cacheControl != null && cacheControl.contains(DIRECTIVE_NO_STORE)) {
+            return false;
+        }
+        return findHeader(headers, HEADER_ETAG) != null
+                || findHeader(headers, HEADER_LAST_MODIFIED) != null
+                || parseMaxAgeMillis(cacheControl) > 0;
+    }
+
+    /**
+     * Stores a full response.
+     */
+    public synchronized void put(String url, byte[] body, Map<String, String> headers) {
+        storeCount++;
+        store(url, new Entry(body, findHeader(headers, HEADER_ETAG), findHeader(headers, HEADER_LAST_MODIFIED),
+                expiresAt(headers)));
+    }
+
+    /**
+     * Records a {@code 304 Not Modified} for a stale entry and refreshes its
+     * validators and freshness from the new headers.
+     *
+     * @return the refreshed entry whose body should be used.
+     */
+    public synchronized Entry revalidate(String url, Entry entry, Map<String, String> headers) {
+        conditionalHitCount++;
+        String etag = findHeader(headers, HEADER_ETAG);
+        String lastModified = findHeader(headers, HEADER_LAST_MODIFIED);
+        Entry refreshed = new Entry(entry.body,
+                etag != null ? etag : entry.etag,
+                lastModified != null ? lastModified : entry.lastModified,
+                expiresAt(headers));
+        store(url, refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Records a miss for a stale entry the host answered with a full
+     * response instead of a {@code 304 Not Modified}, stored or not.
+     */
+    public synchronized void recordStaleMiss() {
+        missCount++;
+    }
+
+    public synchronized void remove(String url) {
+        Entry previous = entries.remove(url);
+        if (previous != null) {
+            sizeBytes -= previous.body.length;
+        }
+    }
+
+    private void store(String url, Entry entry) {
+        Entry previous = entries.put(url, entry);
+        if (previous != null) {
+            sizeBytes -= previous.body.length;
+        }
+        sizeBytes += entry.body.length;
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            sizeBytes -= eldest.body.length;
+            evictionCount++;
+        }
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getConditionalHitCount() {
+        return conditionalHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getStoreCount() {
+        return storeCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResponseCache[hits=" + hitCount + ", conditionalHits=" + conditionalHitCount + ", misses=" + missCount
+                + ", stores=" + storeCount + ", evictions=" + evictionCount + ", entries=" + entries.size() + ", bytes=" + sizeBytes + "/" + maxSizeBytes + "]";
+    }
+
+    private static long expiresAt(Map<String, String> headers) {
+        String cacheControl = findHeader(headers, HEADER_CACHE_CONTROL);
+        if (cacheControl != null && cacheControl.contains(DIRECTIVE_NO_CACHE)) {
+            return 0;
+        }
+        return System.currentTimeMillis() + parseMaxAgeMillis(cacheControl);
+    }
+
+    private static long parseMaxAgeMillis(String cacheControl) {
+        if (cacheControl == null) {
+            return 0;
+        }
+        int start = cacheControl.indexOf(DIRECTIVE_MAX_AGE);
+        if (start < 0) {
+            return 0;
+        }
+        start += DIRECTIVE_MAX_AGE.length();
+        int end = start;
+        while (end < cacheControl.length() && Character.isDigit(cacheControl.charAt(end))) {
+            end++;
+        }
+        try {
+            return Long.parseLong(cacheControl.substring(start, end)) * 1000;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String findHeader(Map<String, String> headers, String name) {
+        return HttpTransport.Response.findHeader(headers, name);
+    }
+}
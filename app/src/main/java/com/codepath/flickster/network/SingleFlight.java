@@ -0,0 +1,116 @@
+package com.codepath.flickster.network;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Collapses concurrent calls for the same key into a single one: the first
+ * caller starts the call, the following ones only wait for its result and
+ * every one of them is notified once it completes.
+ *
+ * A caller may stop waiting at any time, the call itself is only cancelled
+ * once nobody is waiting for it anymore.
+ *
+ * NOTE: Not thread safe, meant to be used from the main thread only which is
+ * where the network callbacks are delivered.
+ *
+ * @param <K> key identifying the call.
+ * @param <V> result of the call.
+ *
+ * @author yvastavaus.
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Receives the result of a call.
+     */
+    public interface Callback<V> {
+        void onSuccess(V value);
+        void onFailure();
+    }
+
+    /**
+     * Starts the actual work for a key, the callback must be called exactly
+     * once unless the returned handle is cancelled.
+     */
+    public interface Call<V> {
+        Cancellable execute(Callback<V> callback);
+    }
+
+    private static class Flight<V> {
+        final ArrayList<Callback<V>> callbacks = new ArrayList<>(2);
+        Cancellable call;
+    }
+
+    private final HashMap<K, Flight<V>> inFlight = new HashMap<>();
+
+    /**
+     * Runs the call for the key unless one is already in flight, in which case
+     * the callback just joins it.
+     *
+     * @return handle to stop waiting for the result.
+     */
+    public Cancellable run(final K key, final Callback<V> callback, Call<V> call) {
+        Flight<V> existing = inFlight.get(key);
+        if (existing != null) {
+            existing.callbacks.add(callback);
+            return waiting(key, existing, callback);
+        }
+
+        final Flight<V> flight = new Flight<>();
+        flight.callbacks.add(callback);
+        inFlight.put(key, flight);
+        flight.call = call.execute(new Callback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                if (inFlight.get(key) == flight) {
+                    inFlight.remove(key);
+                }
+                for (Callback<V> waitingCallback : flight.callbacks) {
+                    waitingCallback.onSuccess(value);
+                }
+            }
+
+            @Override
+            public void onFailure() {
+                if (inFlight.get(key) == flight) {
+                    inFlight.remove(key);
+                }
+                for (Callback<V> waitingCallback : flight.callbacks) {
+                    waitingCallback.onFailure();
+                }
+            }
+        });
+        return waiting(key, flight, callback);
+    }
+
+    private Cancellable waiting(final K key, final Flight<V> flight, final Callback<V> callback) {
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                if (!flight.callbacks.remove(callback) || !flight.callbacks.isEmpty()) {
+                    return;
+                }
+                // Nobody is waiting anymore, no point in finishing the call.
+                if (inFlight.get(key) == flight) {
+                    inFlight.remove(key);
+                }
+                if (flight.call != null) {
+                    flight.call.cancel();
+                }
+            }
+        };
+    }
+
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * @return the handle of the call in flight for the key, null if none.
+     */
+    public Cancellable getCall(K key) {
+        Flight<V> flight = inFlight.get(key);
+        return flight != null ? flight.call : null;
+    }
+}
@@ -0,0 +1,243 @@
+package com.codepath.flickster.network;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.codepath.flickster.concurrent.StageExecutor;
+import com.codepath.flickster.metrics.MeteredInputStream;
+import com.codepath.flickster.metrics.Metrics;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Response handler that maps the body to models without building an
+ * intermediate {@code JSONObject} tree, on the {@link StageExecutor#PARSE}
+ * stage: while it is being read from the connection, or once buffered
+ * (cached bodies). The transport thread moves on to the next response.
+ *
+ * The parsed result is handed to {@link #onSuccess(Object)} on the main thread.
+ *
+ * When attached to a {@link ResponseCache}, cacheable bodies are buffered
+ * and stored before being parsed and a {@code 304 Not Modified} is answered
+ * from the cached body.
+ *
+ * @param <T> type of the parsed result.
+ *
+ * @author yvastavaus.
+ */
+public abstract class StreamingJsonResponseHandler<T> implements HttpTransport.Callback {
+
+    private static final String TAG = StreamingJsonResponseHandler.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 4096;
+    private static final int SC_NOT_MODIFIED = 304;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ResponseCache cache;
+    private String cacheKey;
+    private ResponseCache.Entry cachedEntry;
+    private volatile boolean cancelled;
+
+    // Prefix of the metrics of the request, e.g. "net.videos".
+    private String metricPrefix = "net.unknown";
+    private long startTime;
+
+    /**
+     * Maps the body to the result, called on the request thread.
+     */
+    protected abstract T parse(JsonReader reader) throws IOException;
+
+    public abstract void onSuccess(T result);
+
+    public abstract void onFailure();
+
+    /**
+     * Attaches the cache the response is stored in.
+     *
+     * @param entry stale entry the request has been made conditional on, if any.
+     */
+    void setResponseCache(ResponseCache cache, String url, ResponseCache.Entry entry) {
+        this.cache = cache;
+        this.cacheKey = url;
+        this.cachedEntry = entry;
+    }
+
+    /**
+     * Starts timing the request, the metrics are recorded under {@code net.<requestType>}.
+     */
+    void startTiming(String requestType) {
+        this.metricPrefix = "net." + requestType;
+        this.startTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Parses a body served from the cache without any request, on the parse stage.
+     */
+    void deliverCachedResponse(byte[] body) {
+        parseLater(body);
+    }
+
+    /**
+     * Drops the result, neither callback is called afterwards.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public void onResponse(HttpTransport.Response response) throws IOException {
+        InputStream inputStream = response.getBody();
+        if (cancelled) {
+            closeQuietly(inputStream);
+            return;
+        }
+        Metrics metrics = Metrics.getMetrics();
+        // Queueing, DNS and connect included, the transports don't expose them separately.
+        metrics.record(metricPrefix + ".ttfb", SystemClock.elapsedRealtime() - startTime);
+        int statusCode = response.getStatusCode();
+        Map<String, String> headers = response.getHeaders();
+        if (statusCode == SC_NOT_MODIFIED && cachedEntry != null) {
+            closeQuietly(inputStream);
+            ResponseCache.Entry entry = cache.revalidate(cacheKey, cachedEntry, headers);
+            parseLater(entry.getBody());
+            return;
+        }
+        if (!response.isSuccessful()) {
+            Log.w(TAG, "onResponse: unexpected status " + statusCode);
+            closeQuietly(inputStream);
+            deliverFailure();
+            return;
+        }
+
+        if (cachedEntry != null) {
+            // The stale entry was of no use.
+            cache.recordStaleMiss();
+        }
+        if (cache != null && ResponseCache.isCacheable(headers)) {
+            long downloadStartTime = SystemClock.elapsedRealtime();
+            byte[] body = readFully(inputStream);
+            metrics.record(metricPrefix + ".download", SystemClock.elapsedRealtime() - downloadStartTime);
+            metrics.record(metricPrefix + ".bytes", body.length);
+            cache.put(cacheKey, body, headers);
+            parseLater(body);
+        } else {
+            parseStreamLater(inputStream);
+        }
+    }
+
+    @Override
+    public void onFailure(IOException e) {
+        Log.w(TAG, "onFailure: request failed", e);
+        deliverFailure();
+    }
+
+    private void parseLater(final byte[] body) {
+        StageExecutor.PARSE.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    parseAndDeliver(new ByteArrayInputStream(body));
+                }
+            }
+        });
+    }
+
+    private void parseStreamLater(final InputStream inputStream) {
+        StageExecutor.PARSE.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled) {
+                    closeQuietly(inputStream);
+                    return;
+                }
+                // Download and parse overlap when streaming, the download covers both.
+                parseAndDeliver(new MeteredInputStream(inputStream, metricPrefix + ".bytes", metricPrefix + ".download"));
+            }
+        });
+    }
+
+    private void parseAndDeliver(InputStream inputStream) {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+        long parseStartTime = SystemClock.elapsedRealtime();
+        try {
+            final T result = parse(reader);
+            Metrics.getMetrics().record(metricPrefix + ".parse", SystemClock.elapsedRealtime() - parseStartTime);
+            deliverSuccess(result);
+        } catch (IOException | RuntimeException e) {
+            // Malformed documents surface as IOException or IllegalStateException.
+            if (cancelled) {
+                return;
+            }
+            Log.e(TAG, "parseAndDeliver: error while parsing the response", e);
+            if (cache != null) {
+                cache.remove(cacheKey);
+            }
+            deliverFailure();
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        try {
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private void deliverSuccess(final T result) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled) {
+                    return;
+                }
+                Metrics.getMetrics().record(metricPrefix + ".total", SystemClock.elapsedRealtime() - startTime);
+                onSuccess(result);
+            }
+        });
+    }
+
+    private void deliverFailure() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled) {
+                    return;
+                }
+                Metrics.getMetrics().record(metricPrefix + ".failed", SystemClock.elapsedRealtime() - startTime);
+                onFailure();
+            }
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package com.codepath.flickster.network;
+
+/**
+ * Rate limit allowing bursts: tokens refill at a steady rate up to the
+ * capacity of the bucket, each request takes one.
+ *
+ * @author yvastavaus.
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final double tokensPerMilli;
+    private final Clock clock;
+
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Starts full.
+     *
+     * @param capacity tokens at most, i.e. the longest burst.
+     * @param tokensPerSecond sustained rate.
+     */
+    public TokenBucket(int capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, Clock.ELAPSED_REALTIME);
+    }
+
+    TokenBucket(int capacity, double tokensPerSecond, Clock clock) {
+        this.capacity = capacity;
+        this.tokensPerMilli = tokensPerSecond / 1000;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.refilledAt = clock.elapsedRealtime();
+    }
+
+    /**
+     * Takes a token if at least the given number of them are available,
+     * leaving the rest to more urgent requests.
+     *
+     * @param available tokens the bucket must hold, at least 1.
+     * @return true if a token has been taken.
+     */
+    public synchronized boolean tryAcquire(int available) {
+        refill();
+        if (tokens < available) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * @return time until the bucket holds the given number of tokens, 0 if it already does.
+     */
+    public synchronized long getMillisUntil(int available) {
+        refill();
+        if (tokens >= available) {
+            return 0;
+        }
+        return (long) Math.ceil((available - tokens) / tokensPerMilli);
+    }
+
+    /**
+     * @return time the bucket takes to refill a single token.
+     */
+    public long getMillisPerToken() {
+        return (long) Math.ceil(1 / tokensPerMilli);
+    }
+
+    private void refill() {
+        long now = clock.elapsedRealtime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMilli);
+        refilledAt = now;
+    }
+}
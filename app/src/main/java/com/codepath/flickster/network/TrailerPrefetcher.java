@@ -0,0 +1,133 @@
+package com.codepath.flickster.network;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+
+import com.codepath.flickster.adapters.MovieAdapter;
+import com.codepath.flickster.model.Video;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Looks up the videos of the banner rows sitting on screen, so playing or
+ * sharing a trailer doesn't have to wait for the request.
+ *
+ * Lookups only start once the list settles and at most {@link #MAX_CONCURRENT}
+ * run at a time, leaving the network to the feed and the images. Rows
+ * scrolled away are dropped from the queue and their lookup is cancelled.
+ * Results end up in the {@link VideoCache} of the {@link NetworkManager}.
+ *
+ * @author yvastavaus.
+ */
+public class TrailerPrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final int MAX_CONCURRENT = 2;
+
+    private final NetworkManager networkManager;
+    private final MovieAdapter adapter;
+    private final LinearLayoutManager layoutManager;
+
+    // Movie ids waiting for a free slot, in on screen order.
+    private final LinkedHashSet<Integer> pending = new LinkedHashSet<>();
+    // Handle of the running lookup per movie id.
+    private final SparseArray<Cancellable> inFlight = new SparseArray<>();
+
+    public TrailerPrefetcher(NetworkManager networkManager, MovieAdapter adapter, LinearLayoutManager layoutManager) {
+        this.networkManager = networkManager;
+        this.adapter = adapter;
+        this.layoutManager = layoutManager;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            update();
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        // Also called after a layout, e.g. when the first page shows up.
+        if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
+            update();
+        }
+    }
+
+    private void update() {
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        ArrayList<Integer> visible = new ArrayList<>();
+        if (first != RecyclerView.NO_POSITION) {
+            for (int position = first; position <= last && position < adapter.getItemCount(); position++) {
+                if (adapter.getItemViewType(position) == MovieAdapter.BANNER) {
+                    visible.add(adapter.getItem(position).getId());
+                }
+            }
+        }
+
+        // Forget the rows no longer on screen.
+        pending.retainAll(visible);
+        for (int i = inFlight.size() - 1; i >= 0; i--) {
+            if (!visible.contains(inFlight.keyAt(i))) {
+                inFlight.valueAt(i).cancel();
+                inFlight.removeAt(i);
+            }
+        }
+        for (Integer movieId : visible) {
+            if (inFlight.get(movieId) == null) {
+                pending.add(movieId);
+            }
+        }
+        drain();
+    }
+
+    private void drain() {
+        Iterator<Integer> iterator = pending.iterator();
+        while (inFlight.size() < MAX_CONCURRENT && iterator.hasNext()) {
+            final int movieId = iterator.next();
+            iterator.remove();
+            // Placeholder first, cached videos are delivered right away.
+            inFlight.put(movieId, Cancellable.DONE);
+            Cancellable handle = networkManager.getVideoLink(movieId, NetworkManager.PREFETCH_VIDEOS_POLICY,
+                    new NetworkManager.VideoRequestCallback() {
+                        @Override
+                        public void onSuccess(ArrayList<Video> videoList) {
+                            onDone(movieId);
+                        }
+
+                        @Override
+                        public void onFailure() {
+                            onDone(movieId);
+                        }
+                    });
+            if (inFlight.get(movieId) != null) {
+                inFlight.put(movieId, handle);
+            } else {
+                // Completed synchronously, the iterator is no longer valid.
+                iterator = pending.iterator();
+            }
+        }
+    }
+
+    private void onDone(int movieId) {
+        if (inFlight.get(movieId) == null) {
+            return;
+        }
+        inFlight.remove(movieId);
+        drain();
+    }
+
+    /**
+     * Cancels every lookup, e.g. when the list goes away.
+     */
+    public void cancelAll() {
+        pending.clear();
+        for (int i = 0; i < inFlight.size(); i++) {
+            inFlight.valueAt(i).cancel();
+        }
+        inFlight.clear();
+    }
+}
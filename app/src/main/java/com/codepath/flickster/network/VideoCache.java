@@ -0,0 +1,64 @@
+package com.codepath.flickster.network;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import com.codepath.flickster.model.Video;
+
+import java.util.ArrayList;
+
+/**
+ * Bounded in memory cache of the videos of a movie, keyed by movie id.
+ *
+ * Least recently used movies are evicted once the cache is full and entries
+ * older than the time to live are treated as missing.
+ *
+ * @author yvastavaus.
+ */
+public class VideoCache {
+
+    private static class Entry {
+        final ArrayList<Video> videos;
+        final long expiresAt;
+
+        Entry(ArrayList<Video> videos, long expiresAt) {
+            this.videos = videos;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final LruCache<Integer, Entry> entries;
+    private final long ttlMillis;
+
+    public VideoCache(int maxMovies, long ttlMillis) {
+        this.entries = new LruCache<>(maxMovies);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the videos of the movie or null if not cached or expired.
+     */
+    public ArrayList<Video> get(int movieId) {
+        Entry entry = entries.get(movieId);
+        if (entry == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() >= entry.expiresAt) {
+            entries.remove(movieId);
+            return null;
+        }
+        return entry.videos;
+    }
+
+    public void put(int movieId, ArrayList<Video> videos) {
+        entries.put(movieId, new Entry(videos, SystemClock.elapsedRealtime() + ttlMillis));
+    }
+
+    public int hitCount() {
+        return entries.hitCount();
+    }
+
+    public int missCount() {
+        return entries.missCount();
+    }
+}
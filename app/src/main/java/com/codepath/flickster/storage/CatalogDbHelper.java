@@ -0,0 +1,72 @@
+package com.codepath.flickster.storage;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * Schema of the local movie catalog.
+ *
+ * Movies are stored per endpoint in the order they were received, the
+ * endpoints table keeps the paging information and when it was fetched.
+ *
+ * @author yvastavaus.
+ */
+class CatalogDbHelper extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "catalog.db";
+    private static final int DATABASE_VERSION = 2;
+
+    static final String TABLE_ENDPOINTS = "endpoints";
+    static final String TABLE_MOVIES = "movies";
+
+    static final String COLUMN_ENDPOINT = "endpoint";
+    static final String COLUMN_FETCHED_AT = "fetched_at";
+    static final String COLUMN_PAGE = "page";
+    static final String COLUMN_TOTAL_PAGES = "total_pages";
+
+    static final String COLUMN_POSITION = "position";
+    static final String COLUMN_ID = "id";
+    static final String COLUMN_POSTER_PATH = "poster_path";
+    static final String COLUMN_BACKDROP_PATH = "backdrop_path";
+    static final String COLUMN_ORIGINAL_TITLE = "original_title";
+    static final String COLUMN_OVERVIEW = "overview";
+    static final String COLUMN_RELEASE_DATE = "release_date";
+    static final String COLUMN_VOTE_AVERAGE = "vote_average";
+
+    private static final String INDEX_MOVIES_ID = "movies_id";
+
+    CatalogDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ENDPOINTS + " ("
+                + COLUMN_ENDPOINT + " TEXT PRIMARY KEY, "
+                + COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + COLUMN_PAGE + " INTEGER NOT NULL, "
+                + COLUMN_TOTAL_PAGES + " INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_MOVIES + " ("
+                + COLUMN_ENDPOINT + " TEXT NOT NULL, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + COLUMN_ID + " INTEGER NOT NULL, "
+                + COLUMN_POSTER_PATH + " TEXT, "
+                + COLUMN_BACKDROP_PATH + " TEXT, "
+                + COLUMN_ORIGINAL_TITLE + " TEXT, "
+                + COLUMN_OVERVIEW + " TEXT, "
+                + COLUMN_RELEASE_DATE + " TEXT, "
+                + COLUMN_VOTE_AVERAGE + " REAL NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_ENDPOINT + ", " + COLUMN_POSITION + "))");
+        // Single movies are looked up by id, e.g. when the details screen is restored.
+        db.execSQL("CREATE INDEX " + INDEX_MOVIES_ID + " ON " + TABLE_MOVIES + " (" + COLUMN_ID + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The catalog is only a cache, start over from the network.
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MOVIES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ENDPOINTS);
+        onCreate(db);
+    }
+}
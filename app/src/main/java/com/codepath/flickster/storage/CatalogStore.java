@@ -0,0 +1,377 @@
+package com.codepath.flickster.storage;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.core.snapshot.CatalogSnapshot;
+import com.codepath.flickster.metrics.Metrics;
+import com.codepath.flickster.model.Feeds;
+import com.codepath.flickster.model.Movie;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk backed store of the last fetched movies of every endpoint.
+ *
+ * All the disk work happens on a single background thread, results are
+ * delivered on the main thread. Each endpoint has its own time to live which
+ * decides whether the stored copy is still good enough or the network has to
+ * be hit again.
+ *
+ * Every endpoint is also kept as a memory mapped {@link CatalogSnapshot},
+ * read first so a cold start shows the stored movies without querying and
+ * parsing them. The database is the fallback when the snapshot is missing,
+ * corrupted or of another format version.
+ *
+ * @author yvastavaus.
+ */
+public class CatalogStore {
+
+    private static final String TAG = CatalogStore.class.getSimpleName();
+
+    private static final long TTL_NOW_PLAYING = TimeUnit.MINUTES.toMillis(30);
+    // Rankings and release schedules move slowly.
+    private static final long TTL_RANKINGS = TimeUnit.HOURS.toMillis(6);
+    private static final long TTL_UPCOMING = TimeUnit.HOURS.toMillis(1);
+    private static final long TTL_DEFAULT = TimeUnit.MINUTES.toMillis(10);
+
+    // Columns read by readMovie(Cursor), in order.
+    private static final String[] MOVIE_COLUMNS = {CatalogDbHelper.COLUMN_ID, CatalogDbHelper.COLUMN_POSTER_PATH,
+            CatalogDbHelper.COLUMN_BACKDROP_PATH, CatalogDbHelper.COLUMN_ORIGINAL_TITLE, CatalogDbHelper.COLUMN_OVERVIEW,
+            CatalogDbHelper.COLUMN_RELEASE_DATE, CatalogDbHelper.COLUMN_VOTE_AVERAGE};
+
+    private static final String SNAPSHOT_DIRECTORY = "catalog";
+    private static final String SNAPSHOT_EXTENSION = ".snap";
+
+    private static CatalogStore INSTANCE;
+
+    private final CatalogDbHelper dbHelper;
+    private final File snapshotDirectory;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Movies stored for an endpoint along with when and how far they were fetched.
+     */
+    public static class Entry {
+        private final String endpoint;
+        private final ArrayList<MovieRecord> movies;
+        private final int page;
+        private final int totalPages;
+        private final long fetchedAt;
+
+        Entry(String endpoint, ArrayList<MovieRecord> movies, int page, int totalPages, long fetchedAt) {
+            this.endpoint = endpoint;
+            this.movies = movies;
+            this.page = page;
+            this.totalPages = totalPages;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public ArrayList<MovieRecord> getMovies() {
+            return movies;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        public int getTotalPages() {
+            return totalPages;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        /**
+         * @return true if the endpoint's time to live has elapsed since the fetch.
+         */
+        public boolean isStale() {
+            return System.currentTimeMillis() - fetchedAt > getTtl(endpoint);
+        }
+    }
+
+    /**
+     * Interface to handle the result of a load, called on the main thread.
+     */
+    public interface LoadCallback {
+        /**
+         * @param entry stored entry or null if nothing is stored for the endpoint.
+         */
+        void onLoaded(Entry entry);
+    }
+
+    /**
+     * Interface to handle the result of a single movie load, called on the main thread.
+     */
+    public interface MovieCallback {
+        /**
+         * @param movie stored movie or null if it isn't stored for any endpoint.
+         */
+        void onLoaded(Movie movie);
+    }
+
+    private CatalogStore(Context context) {
+        this.dbHelper = new CatalogDbHelper(context.getApplicationContext());
+        this.snapshotDirectory = new File(context.getFilesDir(), SNAPSHOT_DIRECTORY);
+    }
+
+    public static CatalogStore getCatalogStore(Context context) {
+        if(INSTANCE == null) {
+            INSTANCE = new CatalogStore(context);
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * @return how long the data of an endpoint is served without asking the network.
+     */
+    public static long getTtl(String endpoint) {
+        switch (endpoint) {
+            case Feeds.NOW_PLAYING:
+                return TTL_NOW_PLAYING;
+            case Feeds.POPULAR:
+            case Feeds.TOP_RATED:
+                return TTL_RANKINGS;
+            case Feeds.UPCOMING:
+                return TTL_UPCOMING;
+            default:
+                return TTL_DEFAULT;
+        }
+    }
+
+    public void load(final String endpoint, final LoadCallback callback) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Entry entry = read(endpoint);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onLoaded(entry);
+                    }
+                });
+            }
+        });
+    }
+
+    public void loadMovie(final int id, final MovieCallback callback) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Movie movie = readMovie(id);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onLoaded(movie);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replaces whatever is stored for the endpoint, the list is copied so the
+     * caller is free to keep modifying it.
+     */
+    public void save(final String endpoint, List<? extends MovieRecord> movies, final int page, final int totalPages) {
+        final ArrayList<MovieRecord> snapshot = new ArrayList<MovieRecord>(movies);
+        final long fetchedAt = System.currentTimeMillis();
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(endpoint, snapshot, page, totalPages, fetchedAt);
+            }
+        });
+    }
+
+    private Entry read(String endpoint) {
+        Entry entry = readSnapshot(endpoint);
+        return entry != null ? entry : readDatabase(endpoint);
+    }
+
+    /**
+     * @return the movies of the snapshot, as views of the mapped file, or
+     *         null if there is no usable snapshot.
+     */
+    private Entry readSnapshot(String endpoint) {
+        File file = getSnapshotFile(endpoint);
+        if (!file.exists()) {
+            return null;
+        }
+        long startTime = SystemClock.elapsedRealtime();
+        CatalogSnapshot snapshot;
+        try {
+            snapshot = CatalogSnapshot.map(file);
+        } catch (IOException e) {
+            // Rewritten after the next fetch, the database serves until then.
+            Log.w(TAG, "readSnapshot: falling back to the database for: " + endpoint, e);
+            Metrics.getMetrics().record("catalog.snapshot.fallback", 1);
+            file.delete();
+            return null;
+        }
+        Metrics.getMetrics().record("catalog.snapshot.open", SystemClock.elapsedRealtime() - startTime);
+        return new Entry(endpoint, new ArrayList<MovieRecord>(snapshot.getRows()), snapshot.getPage(),
+                snapshot.getTotalPages(), snapshot.getFetchedAt());
+    }
+
+    private Entry readDatabase(String endpoint) {
+        SQLiteDatabase db;
+        try {
+            db = dbHelper.getReadableDatabase();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "read: unable to open the catalog", e);
+            return null;
+        }
+
+        String[] selectionArgs = {endpoint};
+        Cursor cursor = db.query(CatalogDbHelper.TABLE_ENDPOINTS,
+                new String[]{CatalogDbHelper.COLUMN_FETCHED_AT, CatalogDbHelper.COLUMN_PAGE, CatalogDbHelper.COLUMN_TOTAL_PAGES},
+                CatalogDbHelper.COLUMN_ENDPOINT + " = ?", selectionArgs, null, null, null);
+        long fetchedAt;
+        int page;
+        int totalPages;
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            fetchedAt = cursor.getLong(0);
+            page = cursor.getInt(1);
+            totalPages = cursor.getInt(2);
+        } finally {
+            cursor.close();
+        }
+
+        cursor = db.query(CatalogDbHelper.TABLE_MOVIES, MOVIE_COLUMNS,
+                CatalogDbHelper.COLUMN_ENDPOINT + " = ?", selectionArgs, null, null, CatalogDbHelper.COLUMN_POSITION);
+        ArrayList<MovieRecord> movies = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                movies.add(readMovie(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return new Entry(endpoint, movies, page, totalPages, fetchedAt);
+    }
+
+    private Movie readMovie(int id) {
+        SQLiteDatabase db;
+        try {
+            db = dbHelper.getReadableDatabase();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "readMovie: unable to open the catalog", e);
+            return null;
+        }
+
+        Cursor cursor = db.query(CatalogDbHelper.TABLE_MOVIES, MOVIE_COLUMNS,
+                CatalogDbHelper.COLUMN_ID + " = ?", new String[]{String.valueOf(id)}, null, null, null, "1");
+        try {
+            return cursor.moveToFirst() ? readMovie(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static Movie readMovie(Cursor cursor) {
+        return new Movie(cursor.getInt(0), cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                cursor.getString(4), cursor.getString(5), cursor.getDouble(6));
+    }
+
+    private void write(String endpoint, ArrayList<MovieRecord> movies, int page, int totalPages, long fetchedAt) {
+        writeSnapshot(endpoint, movies, page, totalPages, fetchedAt);
+        writeDatabase(endpoint, movies, page, totalPages, fetchedAt);
+    }
+
+    private void writeSnapshot(String endpoint, ArrayList<MovieRecord> movies, int page, int totalPages, long fetchedAt) {
+        File file = getSnapshotFile(endpoint);
+        try {
+            if (!snapshotDirectory.isDirectory() && !snapshotDirectory.mkdirs()) {
+                throw new IOException("unable to create " + snapshotDirectory);
+            }
+            CatalogSnapshot.write(file, movies, page, totalPages, fetchedAt);
+        } catch (IOException e) {
+            Log.e(TAG, "writeSnapshot: error while storing the snapshot for: " + endpoint, e);
+            // An older snapshot would be read before the newer database.
+            file.delete();
+        }
+    }
+
+    private File getSnapshotFile(String endpoint) {
+        return new File(snapshotDirectory, endpoint + SNAPSHOT_EXTENSION);
+    }
+
+    private void writeDatabase(String endpoint, ArrayList<MovieRecord> movies, int page, int totalPages, long fetchedAt) {
+        SQLiteDatabase db;
+        try {
+            db = dbHelper.getWritableDatabase();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "write: unable to open the catalog", e);
+            return;
+        }
+
+        db.beginTransaction();
+        try {
+            db.delete(CatalogDbHelper.TABLE_MOVIES, CatalogDbHelper.COLUMN_ENDPOINT + " = ?", new String[]{endpoint});
+
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + CatalogDbHelper.TABLE_MOVIES + " ("
+                    + CatalogDbHelper.COLUMN_ENDPOINT + ", " + CatalogDbHelper.COLUMN_POSITION + ", " + CatalogDbHelper.COLUMN_ID + ", "
+                    + CatalogDbHelper.COLUMN_POSTER_PATH + ", " + CatalogDbHelper.COLUMN_BACKDROP_PATH + ", "
+                    + CatalogDbHelper.COLUMN_ORIGINAL_TITLE + ", " + CatalogDbHelper.COLUMN_OVERVIEW + ", "
+                    + CatalogDbHelper.COLUMN_RELEASE_DATE + ", " + CatalogDbHelper.COLUMN_VOTE_AVERAGE
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            for (int i = 0; i < movies.size(); i++) {
+                MovieRecord movie = movies.get(i);
+                insert.clearBindings();
+                insert.bindString(1, endpoint);
+                insert.bindLong(2, i);
+                insert.bindLong(3, movie.getId());
+                bindNullableString(insert, 4, movie.getRawPosterPath());
+                bindNullableString(insert, 5, movie.getRawBackdropPath());
+                bindNullableString(insert, 6, movie.getOriginalTitle());
+                bindNullableString(insert, 7, movie.getOverView());
+                bindNullableString(insert, 8, movie.getReleaseDate());
+                insert.bindDouble(9, movie.getVoteAverage());
+                insert.executeInsert();
+            }
+            insert.close();
+
+            ContentValues values = new ContentValues();
+            values.put(CatalogDbHelper.COLUMN_ENDPOINT, endpoint);
+            values.put(CatalogDbHelper.COLUMN_FETCHED_AT, fetchedAt);
+            values.put(CatalogDbHelper.COLUMN_PAGE, page);
+            values.put(CatalogDbHelper.COLUMN_TOTAL_PAGES, totalPages);
+            db.insertWithOnConflict(CatalogDbHelper.TABLE_ENDPOINTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "write: error while storing the catalog for: " + endpoint, e);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.codepath.flickster.storage;
+
+import android.content.Context;
+import android.util.SparseBooleanArray;
+
+import com.codepath.flickster.core.catalog.MovieCatalog;
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.model.Movie;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Process wide source of the movies, keyed by id, kept in memory and backed
+ * by the {@link CatalogStore} on disk.
+ *
+ * Every movie is held once whatever the number of feeds listing it, in a
+ * columnar {@link MovieCatalog} rather than as objects, feeds only keep the
+ * ordered ids of their movies. Lists going through the repository get their
+ * movies swapped for views of the catalog rows, and {@link Movie}s are only
+ * built on demand.
+ *
+ * Screens only hand each other movie ids and rehydrate from here: straight
+ * from memory while the process lives, from disk after it has been killed.
+ * Lists read from disk are served as read, e.g. views of the mapped
+ * snapshot, their movies only go into the catalog when asked for by id or
+ * when the feed is saved again.
+ *
+ * NOTE: Main thread only, like the callbacks of the catalog.
+ *
+ * @author yvastavaus.
+ */
+public class MovieRepository {
+
+    private static MovieRepository INSTANCE;
+
+    // The catalog is rebuilt without the superseded and unlisted rows once
+    // they outnumber the listed movies, so it holds at most twice what the
+    // feeds list, strings included. Below this many rows it is left alone.
+    private static final int MIN_ROWS_TO_COMPACT = 64;
+    // Movies of a page of results, what the first list loaded holds.
+    private static final int INITIAL_CATALOG_CAPACITY = 20;
+
+    private final CatalogStore catalogStore;
+    // Latest list of every feed, as ids, and every movie of those lists.
+    private final HashMap<String, FeedList> lists = new HashMap<>();
+    private MovieCatalog catalog = new MovieCatalog(INITIAL_CATALOG_CAPACITY);
+
+    /**
+     * Ordered ids of a feed along with its paging information.
+     */
+    private static class FeedList {
+        final int[] ids;
+        // Movies of a list read from disk, not in the catalog. Null for a list saved since.
+        final List<MovieRecord> storedMovies;
+        final int page;
+        final int totalPages;
+        final long fetchedAt;
+
+        FeedList(int[] ids, List<MovieRecord> storedMovies, int page, int totalPages, long fetchedAt) {
+            this.ids = ids;
+            this.storedMovies = storedMovies;
+            this.page = page;
+            this.totalPages = totalPages;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private MovieRepository(CatalogStore catalogStore) {
+        this.catalogStore = catalogStore;
+    }
+
+    public static MovieRepository getMovieRepository(Context context) {
+        if(INSTANCE == null) {
+            INSTANCE = new MovieRepository(CatalogStore.getCatalogStore(context));
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * @return the movie if it is in memory, null otherwise.
+     */
+    public Movie getMovie(int id) {
+        putStoredMovie(id);
+        return catalog.get(id, Movie.FACTORY);
+    }
+
+    /**
+     * Delivers the movie, synchronously when it is in memory.
+     */
+    public void loadMovie(int id, final CatalogStore.MovieCallback callback) {
+        Movie movie = getMovie(id);
+        if (movie != null) {
+            callback.onLoaded(movie);
+            return;
+        }
+        catalogStore.loadMovie(id, new CatalogStore.MovieCallback() {
+            @Override
+            public void onLoaded(Movie movie) {
+                if (movie != null) {
+                    catalog.put(movie);
+                }
+                callback.onLoaded(movie);
+            }
+        });
+    }
+
+    /**
+     * Delivers the latest list of the feed, synchronously when it is in
+     * memory. Movies are catalog rows, or the rows read from disk until the
+     * feed is saved again.
+     */
+    public void loadList(final String feed, final CatalogStore.LoadCallback callback) {
+        if (lists.containsKey(feed)) {
+            callback.onLoaded(toEntry(feed, lists.get(feed)));
+            return;
+        }
+        catalogStore.load(feed, new CatalogStore.LoadCallback() {
+            @Override
+            public void onLoaded(CatalogStore.Entry entry) {
+                // A list saved in the meantime is newer than the stored one.
+                if (entry != null && !lists.containsKey(feed)) {
+                    // Copying every movie into the catalog here would hold up the first screen.
+                    ArrayList<MovieRecord> movies = entry.getMovies();
+                    int[] ids = new int[movies.size()];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = movies.get(i).getId();
+                    }
+                    lists.put(feed, new FeedList(ids, movies, entry.getPage(), entry.getTotalPages(),
+                            entry.getFetchedAt()));
+                }
+                callback.onLoaded(lists.containsKey(feed) ? toEntry(feed, lists.get(feed)) : null);
+            }
+        });
+    }
+
+    /**
+     * Replaces the list of the feed in memory. The movies of the list are
+     * swapped for catalog rows in place.
+     *
+     * Only a first page, i.e. a load or a refresh, is also written to disk in
+     * the background: a cold start shows it and pages on from there, rather
+     * than the whole list being rewritten for every page scrolled through.
+     */
+    public void saveList(String feed, List<MovieRecord> movieList, int page, int totalPages) {
+        if (page == 1) {
+            put(feed, movieList, page, totalPages, System.currentTimeMillis());
+            catalogStore.save(feed, movieList, page, totalPages);
+        } else {
+            // As fresh as its first page.
+            FeedList previous = lists.get(feed);
+            put(feed, movieList, page, totalPages,
+                    previous != null ? previous.fetchedAt : System.currentTimeMillis());
+        }
+    }
+
+    private void put(String feed, List<MovieRecord> movieList, int page, int totalPages, long fetchedAt) {
+        int[] ids = new int[movieList.size()];
+        for (int i = 0; i < movieList.size(); i++) {
+            MovieRecord row = catalog.put(movieList.get(i));
+            movieList.set(i, row);
+            ids[i] = row.getId();
+        }
+        lists.put(feed, new FeedList(ids, null, page, totalPages, fetchedAt));
+        compactIfNeeded();
+    }
+
+    /**
+     * Puts the movie in the catalog from the first list read from disk
+     * holding it, unless the catalog already does.
+     */
+    private void putStoredMovie(int id) {
+        if (catalog.contains(id)) {
+            return;
+        }
+        for (FeedList list : lists.values()) {
+            if (list.storedMovies == null) {
+                continue;
+            }
+            for (MovieRecord movie : list.storedMovies) {
+                if (movie.getId() == id) {
+                    catalog.put(movie);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets go of the rows superseded or no longer listed by any feed. Views
+     * of the previous catalog stay valid, it goes away with the last of them.
+     */
+    private void compactIfNeeded() {
+        if (catalog.size() < MIN_ROWS_TO_COMPACT) {
+            return;
+        }
+        SparseBooleanArray listed = new SparseBooleanArray(catalog.getMovieCount());
+        for (FeedList list : lists.values()) {
+            for (int id : list.ids) {
+                listed.put(id, true);
+            }
+        }
+        if (catalog.size() <= 2 * listed.size()) {
+            return;
+        }
+        int[] listedIds = new int[listed.size()];
+        for (int i = 0; i < listedIds.length; i++) {
+            listedIds[i] = listed.keyAt(i);
+        }
+        catalog = catalog.compact(listedIds);
+    }
+
+    private CatalogStore.Entry toEntry(String feed, FeedList list) {
+        if (list.storedMovies != null) {
+            return new CatalogStore.Entry(feed, new ArrayList<>(list.storedMovies), list.page, list.totalPages,
+                    list.fetchedAt);
+        }
+        ArrayList<MovieRecord> rows = new ArrayList<>(list.ids.length);
+        for (int id : list.ids) {
+            rows.add(catalog.get(id));
+        }
+        return new CatalogStore.Entry(feed, rows, list.page, list.totalPages, list.fetchedAt);
+    }
+}
@@ -0,0 +1,40 @@
+package com.codepath.flickster.utils;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Scroll listener that asks for more data once the last visible item gets
+ * within {@code visibleThreshold} items of the end of the list.
+ *
+ * @author yvastavaus.
+ */
+public abstract class EndlessScrollListener extends RecyclerView.OnScrollListener {
+
+    private final LinearLayoutManager layoutManager;
+    private final int visibleThreshold;
+
+    public EndlessScrollListener(LinearLayoutManager layoutManager, int visibleThreshold) {
+        this.layoutManager = layoutManager;
+        this.visibleThreshold = visibleThreshold;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        // Only care about scrolling towards the end of the list.
+        if (dy <= 0) {
+            return;
+        }
+        int itemCount = layoutManager.getItemCount();
+        int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+        if (itemCount > 0 && lastVisiblePosition + visibleThreshold >= itemCount - 1) {
+            onLoadMore();
+        }
+    }
+
+    /**
+     * Called every time the end of the list is in reach, implementations are
+     * expected to ignore the call if a load is already running.
+     */
+    public abstract void onLoadMore();
+}
@@ -3,10 +3,6 @@ package com.codepath.flickster.utils;
 import android.content.Context;
 import android.content.res.Configuration;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-
 /**
  * Generic utility UI functions used accross the app.
  *
@@ -23,19 +19,4 @@ public class UiUtils {
     public static boolean isPortrait(Context context) {
         return context.getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT;
     }
-
-    public static String getFormattedDate(String dateString) {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-        String newFormat = dateString;
-        try {
-            Date date = format.parse(dateString);
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            newFormat = new SimpleDateFormat("MMM d, yyyy").format(cal.getTime());
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return newFormat;
-    }
 }
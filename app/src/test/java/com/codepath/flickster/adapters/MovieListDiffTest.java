@@ -0,0 +1,156 @@
+package com.codepath.flickster.adapters;
+
+import com.codepath.flickster.display.MovieDisplay;
+import com.codepath.flickster.display.TestDisplays;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MovieListDiffTest {
+
+    // Stands for a movie inserted in the list.
+    private static final int INSERTED = -1;
+
+    @Test
+    public void sameList_noOperation() {
+        List<MovieDisplay> list = displays(1, 2, 3);
+        assertTrue(MovieListDiff.calculate(list, displays(1, 2, 3)).isEmpty());
+    }
+
+    @Test
+    public void emptyOldList_insertsEverything() {
+        assertOperations(displays(), displays(1, 2, 3), "insert 0 3");
+    }
+
+    @Test
+    public void emptyNewList_removesEverything() {
+        assertOperations(displays(1, 2, 3), displays(), "remove 0 3");
+    }
+
+    @Test
+    public void bothEmpty_noOperation() {
+        assertTrue(MovieListDiff.calculate(displays(), displays()).isEmpty());
+    }
+
+    @Test
+    public void removals_mergedIntoRanges() {
+        assertOperations(displays(1, 2, 3, 4, 5, 6), displays(1, 4, 6), "remove 4 1", "remove 1 2");
+    }
+
+    @Test
+    public void inserts_mergedIntoRanges() {
+        assertOperations(displays(1, 2), displays(1, 3, 4, 2, 5), "insert 1 2", "insert 4 1");
+    }
+
+    @Test
+    public void move_toTheFront() {
+        assertOperations(displays(1, 2, 3), displays(3, 1, 2), "move 2 0");
+    }
+
+    @Test
+    public void move_toTheEnd_singleMove() {
+        assertOperations(displays(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), displays(2, 3, 4, 5, 6, 7, 8, 9, 10, 1),
+                "move 0 9");
+    }
+
+    @Test
+    public void moves_onlyOutOfOrderMovies() {
+        assertOperations(displays(1, 2, 3, 4, 5, 6), displays(1, 5, 2, 3, 6, 4), "move 4 1", "move 4 5");
+    }
+
+    @Test
+    public void moves_reverseList() {
+        assertApplies(displays(1, 2, 3, 4, 5), displays(5, 4, 3, 2, 1));
+    }
+
+    @Test
+    public void changedContent_recordedAsChange() {
+        List<MovieDisplay> newList = displays(1, 2, 3);
+        newList.set(1, TestDisplays.of(2, 8));
+        newList.set(2, TestDisplays.of(3, 8));
+        assertOperations(displays(1, 2, 3), newList, "change 1 2");
+    }
+
+    @Test
+    public void movedAndChanged_recordedAsMoveThenChange() {
+        List<MovieDisplay> newList = Arrays.asList(TestDisplays.of(2), TestDisplays.of(1, 8));
+        assertOperations(displays(1, 2), newList, "move 0 1", "change 1 1");
+    }
+
+    @Test
+    public void mixedOperations_turnOldListIntoNewOne() {
+        assertApplies(displays(1, 2, 3, 4, 5, 6, 7), displays(8, 6, 1, 9, 3, 2, 10));
+        assertApplies(displays(1, 2, 3), displays(4, 5, 6));
+        assertOperations(displays(1, 2, 3), displays(2, 3, 4, 1), "insert 3 1", "move 0 3");
+    }
+
+    /**
+     * Checks the operations recorded, and that applying them gives the new list.
+     */
+    private static void assertOperations(List<MovieDisplay> oldList, List<MovieDisplay> newList,
+                                         String... expected) {
+        assertEquals(Arrays.asList(expected), assertApplies(oldList, newList));
+    }
+
+    /**
+     * Inserts only tell where new movies go, which ones is left to the new list.
+     *
+     * @return the operations, as text.
+     */
+    private static List<String> assertApplies(List<MovieDisplay> oldList, List<MovieDisplay> newList) {
+        final List<Integer> ids = new ArrayList<>();
+        for (MovieDisplay display : oldList) {
+            ids.add(display.getId());
+        }
+        final List<Integer> newIds = new ArrayList<>();
+        for (MovieDisplay display : newList) {
+            newIds.add(ids.contains(display.getId()) ? display.getId() : INSERTED);
+        }
+        final List<String> operations = new ArrayList<>();
+        MovieListDiff.calculate(oldList, newList).dispatchTo(new MovieListDiff.Callback() {
+            @Override
+            public void onInserted(int position, int count) {
+                operations.add("insert " + position + " " + count);
+                ids.addAll(position, Collections.nCopies(count, INSERTED));
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                operations.add("remove " + position + " " + count);
+                ids.subList(position, position + count).clear();
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                operations.add("move " + fromPosition + " " + toPosition);
+                ids.add(toPosition, ids.remove(fromPosition));
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                operations.add("change " + position + " " + count);
+                assertTrue(position + count <= ids.size());
+            }
+        });
+        assertEquals(newIds, ids);
+        return operations;
+    }
+
+    private static List<MovieDisplay> displays(int... ids) {
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+        List<MovieDisplay> displays = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            displays.add(TestDisplays.of(id));
+        }
+        return displays;
+    }
+}
@@ -0,0 +1,28 @@
+package com.codepath.flickster.display;
+
+import com.codepath.flickster.adapters.MovieAdapter;
+import com.codepath.flickster.model.Movie;
+
+/**
+ * Displays built without a context, for the JVM tests.
+ *
+ * @author yvastavaus.
+ */
+public final class TestDisplays {
+
+    private TestDisplays() {}
+
+    /**
+     * @return a poster row display of a movie with the given id and vote average.
+     */
+    public static MovieDisplay of(int id, double voteAverage) {
+        Movie movie = new Movie(id, "/poster" + id + ".jpg", "/backdrop" + id + ".jpg", "Movie " + id,
+                "Overview of " + id, "2016-08-03", voteAverage);
+        return new MovieDisplay(movie, id, movie.getOriginalTitle(), movie.getOverView(), MovieAdapter.POSTER,
+                null, null, (float) voteAverage / 2);
+    }
+
+    public static MovieDisplay of(int id) {
+        return of(id, 5);
+    }
+}
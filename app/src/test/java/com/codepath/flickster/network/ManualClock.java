@@ -0,0 +1,132 @@
+package com.codepath.flickster.network;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock only moving when told to, running the tasks scheduled on its
+ * {@link #getExecutor() executor} as their time comes, on the calling thread.
+ *
+ * @author yvastavaus.
+ */
+class ManualClock implements Clock {
+
+    private long now = 1000;
+    private final Executor executor = new Executor();
+
+    @Override
+    public synchronized long elapsedRealtime() {
+        return now;
+    }
+
+    /**
+     * Moves the time forward, running the tasks due by then in order.
+     */
+    void advance(long millis) {
+        long target;
+        synchronized (this) {
+            target = now + millis;
+        }
+        ScheduledTask task;
+        while ((task = executor.pollDue(target)) != null) {
+            synchronized (this) {
+                now = Math.max(now, task.runAt);
+            }
+            task.runnable.run();
+        }
+        synchronized (this) {
+            now = target;
+        }
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Executor only supporting {@link #schedule(Runnable, long, TimeUnit)}, driven by the clock.
+     */
+    class Executor extends ScheduledThreadPoolExecutor {
+        private final ArrayList<ScheduledTask> tasks = new ArrayList<>();
+
+        Executor() {
+            super(0);
+        }
+
+        @Override
+        public synchronized ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            ScheduledTask task = new ScheduledTask(command, elapsedRealtime() + unit.toMillis(delay));
+            tasks.add(task);
+            return task;
+        }
+
+        synchronized int getScheduledCount() {
+            return tasks.size();
+        }
+
+        private synchronized ScheduledTask pollDue(long time) {
+            ScheduledTask due = null;
+            for (Iterator<ScheduledTask> iterator = tasks.iterator(); iterator.hasNext(); ) {
+                ScheduledTask task = iterator.next();
+                if (task.cancelled) {
+                    iterator.remove();
+                } else if (task.runAt <= time && (due == null || task.runAt < due.runAt)) {
+                    due = task;
+                }
+            }
+            tasks.remove(due);
+            return due;
+        }
+    }
+
+    private class ScheduledTask implements ScheduledFuture<Object> {
+        final Runnable runnable;
+        final long runAt;
+        volatile boolean cancelled;
+
+        ScheduledTask(Runnable runnable, long runAt) {
+            this.runnable = runnable;
+            this.runAt = runAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(runAt - elapsedRealtime(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return cancelled;
+        }
+
+        @Override
+        public Object get() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.codepath.flickster.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestSchedulerTest {
+
+    private static final int RESERVED_TOKENS = 1;
+    private static final long MAX_DROPPABLE_WAIT_MILLIS = 5000;
+    private static final int MAX_DROPPABLE_QUEUED = 2;
+
+    private ManualClock clock;
+    private RequestScheduler scheduler;
+    // What happened to the requests, in order.
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock();
+        // 2 tokens, one every second.
+        scheduler = new RequestScheduler(new TokenBucket(2, 1, clock), clock.getExecutor(), RESERVED_TOKENS,
+                MAX_DROPPABLE_WAIT_MILLIS, MAX_DROPPABLE_QUEUED, clock);
+    }
+
+    @Test
+    public void startsRightAway_whileTokensLast() {
+        submit(RequestScheduler.VISIBLE, "a");
+        submit(RequestScheduler.VISIBLE, "b");
+        submit(RequestScheduler.VISIBLE, "c");
+        assertEvents("start a", "start b");
+        clock.advance(999);
+        assertEvents("start a", "start b");
+        clock.advance(1);
+        assertEvents("start a", "start b", "start c");
+    }
+
+    @Test
+    public void mostUrgentFirst_onceTokensRefill() {
+        drain();
+        submit(RequestScheduler.VISIBLE, "visible");
+        submit(RequestScheduler.USER_BLOCKING, "blocking");
+        clock.advance(1000);
+        assertEvents("start blocking");
+        clock.advance(1000);
+        assertEvents("start blocking", "start visible");
+    }
+
+    @Test
+    public void droppable_leavesReservedTokens() {
+        submit(RequestScheduler.PREFETCH, "prefetch");
+        // 1 token left, the reserved one.
+        submit(RequestScheduler.PREFETCH, "held back");
+        submit(RequestScheduler.VISIBLE, "visible");
+        assertEvents("start prefetch", "start visible");
+        clock.advance(2000);
+        assertEvents("start prefetch", "start visible", "start held back");
+    }
+
+    @Test
+    public void newRequest_waitsBehindQueuedOnesOfItsClass() {
+        drain();
+        submit(RequestScheduler.VISIBLE, "first");
+        clock.advance(1000);
+        assertEvents("start first");
+        submit(RequestScheduler.VISIBLE, "second");
+        submit(RequestScheduler.VISIBLE, "third");
+        clock.advance(1000);
+        assertEvents("start first", "start second");
+    }
+
+    @Test
+    public void droppable_oldestDroppedWhenTheQueueIsFull() {
+        drain();
+        submit(RequestScheduler.PREFETCH, "a");
+        submit(RequestScheduler.PREFETCH, "b");
+        submit(RequestScheduler.PREFETCH, "c");
+        assertEvents("drop a");
+        clock.advance(2000);
+        assertEvents("drop a", "start b");
+    }
+
+    @Test
+    public void droppable_droppedAfterWaitingTooLong() {
+        drain();
+        // Keeps the tokens taken, nothing droppable starts.
+        for (int i = 0; i < 6; i++) {
+            submit(RequestScheduler.VISIBLE, "visible " + i);
+        }
+        submit(RequestScheduler.BACKGROUND_SYNC, "sync");
+        clock.advance(MAX_DROPPABLE_WAIT_MILLIS);
+        assertTrue(events.contains("drop sync"));
+        assertEquals(5, countStarted());
+    }
+
+    @Test
+    public void notDroppable_waitsAsLongAsNeeded() {
+        drain();
+        for (int i = 0; i < 20; i++) {
+            submit(RequestScheduler.VISIBLE, "visible " + i);
+        }
+        clock.advance(20000);
+        assertEquals(20, countStarted());
+        assertEquals(20, events.size());
+    }
+
+    @Test
+    public void promote_movesAQueuedRequestUp() {
+        drain();
+        submit(RequestScheduler.VISIBLE, "visible");
+        RequestScheduler.Ticket prefetch = submit(RequestScheduler.PREFETCH, "prefetch");
+        prefetch.promote(RequestScheduler.USER_BLOCKING);
+        clock.advance(1000);
+        assertEvents("promote prefetch", "start prefetch");
+        clock.advance(1000);
+        assertEvents("promote prefetch", "start prefetch", "start visible");
+    }
+
+    @Test
+    public void promote_startedRequestIsTold() {
+        RequestScheduler.Ticket prefetch = submit(RequestScheduler.PREFETCH, "prefetch");
+        prefetch.promote(RequestScheduler.USER_BLOCKING);
+        // Already there.
+        prefetch.promote(RequestScheduler.VISIBLE);
+        assertEvents("start prefetch", "promote prefetch");
+    }
+
+    @Test
+    public void promote_noLongerDroppable() {
+        drain();
+        for (int i = 0; i < 10; i++) {
+            submit(RequestScheduler.USER_BLOCKING, "blocking " + i);
+        }
+        RequestScheduler.Ticket prefetch = submit(RequestScheduler.PREFETCH, "prefetch");
+        prefetch.promote(RequestScheduler.VISIBLE);
+        clock.advance(MAX_DROPPABLE_WAIT_MILLIS * 3);
+        assertEquals(11, countStarted());
+        assertTrue(events.contains("start prefetch"));
+    }
+
+    @Test
+    public void promote_toALessUrgentClassIgnored() {
+        drain();
+        RequestScheduler.Ticket blocking = submit(RequestScheduler.USER_BLOCKING, "blocking");
+        submit(RequestScheduler.USER_BLOCKING, "other");
+        blocking.promote(RequestScheduler.PREFETCH);
+        clock.advance(1000);
+        assertEvents("start blocking");
+    }
+
+    @Test
+    public void cancel_queuedRequestNeverStarts() {
+        drain();
+        RequestScheduler.Ticket ticket = submit(RequestScheduler.VISIBLE, "cancelled");
+        submit(RequestScheduler.VISIBLE, "kept");
+        ticket.cancel();
+        clock.advance(2000);
+        assertEvents("start kept");
+    }
+
+    @Test
+    public void cancel_startedRequestCancelsItsHandle() {
+        RequestScheduler.Ticket ticket = submit(RequestScheduler.VISIBLE, "a");
+        ticket.cancel();
+        assertEvents("start a", "cancel a");
+    }
+
+    /**
+     * Takes every token with requests which aren't recorded.
+     */
+    private void drain() {
+        scheduler.submit(RequestScheduler.USER_BLOCKING, new RecordingTask(null));
+        scheduler.submit(RequestScheduler.USER_BLOCKING, new RecordingTask(null));
+    }
+
+    private RequestScheduler.Ticket submit(@RequestScheduler.Priority int priority, String name) {
+        return scheduler.submit(priority, new RecordingTask(name));
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+    }
+
+    private int countStarted() {
+        int started = 0;
+        for (String event : events) {
+            if (event.startsWith("start ")) {
+                started++;
+            }
+        }
+        return started;
+    }
+
+    private class RecordingTask implements RequestScheduler.Task {
+        private final String name;
+
+        RecordingTask(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Cancellable start() {
+            record("start");
+            return new Cancellable() {
+                @Override
+                public void cancel() {
+                    record("cancel");
+                }
+            };
+        }
+
+        @Override
+        public void onDropped() {
+            record("drop");
+        }
+
+        @Override
+        public void onPromoted(@RequestScheduler.Priority int priority) {
+            record("promote");
+        }
+
+        private void record(String event) {
+            if (name != null) {
+                events.add(event + " " + name);
+            }
+        }
+    }
+}
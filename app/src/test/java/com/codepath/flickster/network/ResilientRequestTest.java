@@ -0,0 +1,189 @@
+package com.codepath.flickster.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResilientRequestTest {
+
+    private static final String URL = "https://api.example.com/3/movie/1/videos";
+    private static final long MAX_DROPPABLE_WAIT_MILLIS = 5000;
+    private static final RequestPolicy PREFETCH_POLICY =
+            new RequestPolicy(8000, 3, false, RequestScheduler.PREFETCH);
+
+    private ManualClock clock;
+    private RequestScheduler requestScheduler;
+    private ManualTransport transport;
+    // What the callback of the request got, in order.
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock();
+        // 2 tokens, one every second.
+        requestScheduler = new RequestScheduler(new TokenBucket(2, 1, clock), clock.getExecutor(), 1,
+                MAX_DROPPABLE_WAIT_MILLIS, 10, clock);
+        transport = new ManualTransport();
+    }
+
+    @Test
+    public void retryOfAPrefetch_droppedWhileTheQueueIsBusy() {
+        ResilientRequest request = newRequest(PREFETCH_POLICY);
+        request.start();
+        keepQueueBusy();
+        transport.respond(500);
+        clock.advance(MAX_DROPPABLE_WAIT_MILLIS + 500);
+        assertEquals(1, transport.getRequestCount());
+        assertEvents("failure retry dropped from the queue: " + URL);
+    }
+
+    @Test
+    public void promotedPrefetch_retriedAsUserBlocking() {
+        ResilientRequest request = newRequest(PREFETCH_POLICY);
+        request.start();
+        keepQueueBusy();
+        // The user taps the trailer while the prefetch is in flight.
+        request.promote(RequestScheduler.USER_BLOCKING);
+        transport.respond(500);
+        // The back off, then the next token.
+        clock.advance(1200);
+        assertEquals(2, transport.getRequestCount());
+        transport.respond(200);
+        assertEvents("response 200");
+    }
+
+    @Test
+    public void promote_queuedRetryMovesUp() {
+        ResilientRequest request = newRequest(PREFETCH_POLICY);
+        request.start();
+        keepQueueBusy();
+        transport.respond(500);
+        // The retry is queued as a prefetch behind the visible requests.
+        clock.advance(200);
+        request.promote(RequestScheduler.USER_BLOCKING);
+        clock.advance(1000);
+        assertEquals(2, transport.getRequestCount());
+        assertEvents();
+    }
+
+    @Test
+    public void throttled_leavesTheCircuitBreakerClosed() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 30000, clock);
+        ResilientRequest request = newRequest(new RequestPolicy(8000, 3, false), circuitBreaker);
+        request.start();
+        for (int i = 0; i < 3; i++) {
+            transport.respond(429, Collections.singletonMap("Retry-After", "1"));
+            clock.advance(1000);
+        }
+        assertEquals(3, transport.getRequestCount());
+        assertEvents("failure HTTP 429 from " + URL);
+        assertEquals(CircuitBreaker.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void serverErrors_openTheCircuitBreaker() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 30000, clock);
+        ResilientRequest request = newRequest(new RequestPolicy(8000, 3, false), circuitBreaker);
+        request.start();
+        transport.respond(500);
+        clock.advance(200);
+        transport.respond(500);
+        assertEquals(CircuitBreaker.OPEN, circuitBreaker.getState());
+    }
+
+    private ResilientRequest newRequest(RequestPolicy policy) {
+        return newRequest(policy, new CircuitBreaker(5, 30000, clock));
+    }
+
+    private ResilientRequest newRequest(RequestPolicy policy, CircuitBreaker circuitBreaker) {
+        return new ResilientRequest(transport, clock.getExecutor(), requestScheduler, circuitBreaker,
+                policy, "net.test", URL, null, new HttpTransport.Callback() {
+            @Override
+            public void onResponse(HttpTransport.Response response) {
+                events.add("response " + response.getStatusCode());
+            }
+
+            @Override
+            public void onFailure(IOException e) {
+                events.add("failure " + e.getMessage());
+            }
+        }, clock);
+    }
+
+    /**
+     * Takes every token and queues more visible requests than the droppable
+     * wait lets through.
+     */
+    private void keepQueueBusy() {
+        for (int i = 0; i < 2 + 10; i++) {
+            requestScheduler.submit(RequestScheduler.VISIBLE, new RequestScheduler.Task() {
+                @Override
+                public Cancellable start() {
+                    return Cancellable.DONE;
+                }
+
+                @Override
+                public void onDropped() {
+                }
+
+                @Override
+                public void onPromoted(@RequestScheduler.Priority int priority) {
+                }
+            });
+        }
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+    }
+
+    /**
+     * Transport answering its requests when told to, oldest first.
+     */
+    private static class ManualTransport implements HttpTransport {
+        private final ArrayList<Callback> pending = new ArrayList<>();
+        private int requestCount;
+
+        @Override
+        public String getName() {
+            return "manual";
+        }
+
+        @Override
+        public Cancellable get(String url, Map<String, String> headers, final Callback callback) {
+            requestCount++;
+            pending.add(callback);
+            return new Cancellable() {
+                @Override
+                public void cancel() {
+                    pending.remove(callback);
+                }
+            };
+        }
+
+        int getRequestCount() {
+            return requestCount;
+        }
+
+        void respond(int statusCode) {
+            respond(statusCode, Collections.<String, String>emptyMap());
+        }
+
+        void respond(int statusCode, Map<String, String> headers) {
+            try {
+                pending.remove(0).onResponse(new Response(statusCode, headers, new ByteArrayInputStream(new byte[0])));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.codepath.flickster.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    private ManualClock clock;
+    // 3 tokens, one every 500ms.
+    private TokenBucket bucket;
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock();
+        bucket = new TokenBucket(3, 2, clock);
+    }
+
+    @Test
+    public void startsFull_burstUpToCapacity() {
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    public void refills_atTheSustainedRate() {
+        drain();
+        assertEquals(500, bucket.getMillisUntil(1));
+        clock.advance(250);
+        assertFalse(bucket.tryAcquire(1));
+        assertEquals(250, bucket.getMillisUntil(1));
+        clock.advance(250);
+        assertEquals(0, bucket.getMillisUntil(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    public void refill_cappedAtCapacity() {
+        drain();
+        clock.advance(60000);
+        drain();
+        assertEquals(500, bucket.getMillisUntil(1));
+    }
+
+    @Test
+    public void reservedTokens_leftToOthers() {
+        assertTrue(bucket.tryAcquire(3));
+        // 2 left: not enough for a request leaving 2 to others, enough for the others.
+        assertFalse(bucket.tryAcquire(3));
+        assertEquals(500, bucket.getMillisUntil(3));
+        assertTrue(bucket.tryAcquire(1));
+        assertEquals(1000, bucket.getMillisUntil(3));
+    }
+
+    @Test
+    public void millisPerToken() {
+        assertEquals(500, bucket.getMillisPerToken());
+        assertEquals(334, new TokenBucket(1, 3, clock).getMillisPerToken());
+    }
+
+    private void drain() {
+        while (bucket.tryAcquire(1)) {
+            // Empty it.
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.codepath.flickster.benchmarks;
+
+import com.codepath.flickster.core.model.MovieFactory;
+import com.codepath.flickster.core.model.MovieRecord;
+
+/**
+ * Plain movie model, the JVM stand-in of the app's {@code Movie}.
+ *
+ * @author yvastavaus.
+ */
+public class BenchMovie implements MovieRecord {
+
+    public static final MovieFactory<BenchMovie> FACTORY = new MovieFactory<BenchMovie>() {
+        @Override
+        public BenchMovie create(int id, String posterPath, String backdropPath, String originalTitle,
+                                 String overView, String releaseDate, double voteAverage) {
+            return new BenchMovie(id, posterPath, backdropPath, originalTitle, overView, releaseDate, voteAverage);
+        }
+    };
+
+    private final int id;
+    private final String posterPath;
+    private final String backdropPath;
+    private final String originalTitle;
+    private final String overView;
+    private final String releaseDate;
+    private final double voteAverage;
+
+    public BenchMovie(int id, String posterPath, String backdropPath, String originalTitle,
+                      String overView, String releaseDate, double voteAverage) {
+        this.id = id;
+        this.posterPath = posterPath;
+        this.backdropPath = backdropPath;
+        this.originalTitle = originalTitle;
+        this.overView = overView;
+        this.releaseDate = releaseDate;
+        this.voteAverage = voteAverage;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String getRawPosterPath() {
+        return posterPath;
+    }
+
+    @Override
+    public String getRawBackdropPath() {
+        return backdropPath;
+    }
+
+    @Override
+    public String getOriginalTitle() {
+        return originalTitle;
+    }
+
+    @Override
+    public String getOverView() {
+        return overView;
+    }
+
+    @Override
+    public String getReleaseDate() {
+        return releaseDate;
+    }
+
+    @Override
+    public double getVoteAverage() {
+        return voteAverage;
+    }
+}
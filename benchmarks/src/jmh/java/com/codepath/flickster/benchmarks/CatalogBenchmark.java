@@ -0,0 +1,69 @@
+package com.codepath.flickster.benchmarks;
+
+import com.codepath.flickster.core.catalog.MovieCatalog;
+import com.codepath.flickster.core.json.MovieJsonParser;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling a columnar catalog with a paged back catalog and reading its rows
+ * back, e.g. to bind or index them.
+ *
+ * @author yvastavaus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogBenchmark {
+
+    @Param({"1000", "50000"})
+    public int movieCount;
+
+    private ArrayList<BenchMovie> movies;
+    private MovieCatalog catalog;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(Payloads.nowPlaying(movieCount)), Payloads.UTF_8));
+        try {
+            movies = MovieJsonParser.readPage(reader, 1, BenchMovie.FACTORY).getMovies();
+        } finally {
+            reader.close();
+        }
+        catalog = putAll();
+    }
+
+    @Benchmark
+    public MovieCatalog putAll() {
+        MovieCatalog catalog = new MovieCatalog(movies.size());
+        for (BenchMovie movie : movies) {
+            catalog.put(movie);
+        }
+        return catalog;
+    }
+
+    @Benchmark
+    public int readRows() {
+        int length = 0;
+        for (BenchMovie movie : movies) {
+            MovieCatalog.Row row = catalog.get(movie.getId());
+            length += row.getOriginalTitle().length() + row.getReleaseDate().length();
+        }
+        return length;
+    }
+}
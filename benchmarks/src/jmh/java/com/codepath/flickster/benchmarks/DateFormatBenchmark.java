@@ -0,0 +1,32 @@
+package com.codepath.flickster.benchmarks;
+
+import com.codepath.flickster.core.format.ReleaseDateFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting of a release date for display, valid and missing ("null") dates.
+ *
+ * @author yvastavaus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateFormatBenchmark {
+
+    @Param({"2016-08-03", "null"})
+    public String releaseDate;
+
+    @Benchmark
+    public String format() {
+        return ReleaseDateFormatter.format(releaseDate);
+    }
+}
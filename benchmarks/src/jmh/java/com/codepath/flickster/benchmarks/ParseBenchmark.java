@@ -0,0 +1,52 @@
+package com.codepath.flickster.benchmarks;
+
+import com.codepath.flickster.core.json.MovieJsonParser;
+import com.codepath.flickster.core.model.MoviePage;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse of a now playing response into movies, from the raw bytes as the
+ * app does it on the request thread.
+ *
+ * @author yvastavaus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParseBenchmark {
+
+    // A single page, a long scroll and a full catalog.
+    @Param({"20", "1000", "50000"})
+    public int movieCount;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = Payloads.nowPlaying(movieCount);
+    }
+
+    @Benchmark
+    public MoviePage<BenchMovie> readPage() throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(payload), Payloads.UTF_8));
+        try {
+            return MovieJsonParser.readPage(reader, 1, BenchMovie.FACTORY);
+        } finally {
+            reader.close();
+        }
+    }
+}
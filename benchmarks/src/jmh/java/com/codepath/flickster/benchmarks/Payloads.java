@@ -0,0 +1,73 @@
+package com.codepath.flickster.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Now playing responses of any size, built from the recorded page in
+ * {@code now_playing_page.json} by repeating its movies with new ids.
+ *
+ * @author yvastavaus.
+ */
+final class Payloads {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String RECORDED_PAGE = "/now_playing_page.json";
+    // Added to the recorded ids on every repetition so they stay unique.
+    private static final int ID_STRIDE = 1000000;
+
+    private Payloads() {}
+
+    /**
+     * @return UTF-8 body of a now playing page holding the given number of movies.
+     */
+    static byte[] nowPlaying(int movieCount) throws IOException {
+        JsonObject page = readRecordedPage();
+        JsonArray recorded = page.getAsJsonArray("results");
+        JsonArray results = new JsonArray();
+        for (int i = 0; i < movieCount; i++) {
+            JsonObject movie = copyOf(recorded.get(i % recorded.size()).getAsJsonObject());
+            int repetition = i / recorded.size();
+            movie.addProperty("id", movie.get("id").getAsInt() + repetition * ID_STRIDE);
+            results.add(movie);
+        }
+        page.add("results", results);
+        page.addProperty("total_results", movieCount);
+        return page.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Shallow copy, only the top level properties are replaced.
+     */
+    private static JsonObject copyOf(JsonObject source) {
+        JsonObject copy = new JsonObject();
+        for (Map.Entry<String, JsonElement> property : source.entrySet()) {
+            copy.add(property.getKey(), property.getValue());
+        }
+        return copy;
+    }
+
+    private static JsonObject readRecordedPage() throws IOException {
+        InputStream inputStream = Payloads.class.getResourceAsStream(RECORDED_PAGE);
+        if (inputStream == null) {
+            throw new IOException("missing resource " + RECORDED_PAGE);
+        }
+        Reader reader = new InputStreamReader(inputStream, UTF_8);
+        try {
+            JsonElement root = new JsonParser().parse(reader);
+            return root.getAsJsonObject();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.codepath.flickster.benchmarks;
+
+import com.codepath.flickster.core.json.MovieJsonParser;
+import com.codepath.flickster.core.search.MovieSearchIndex;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * As you type search over the catalog, a single letter and a two word query
+ * whose last word is still being typed.
+ *
+ * @author yvastavaus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    @Param({"20", "1000"})
+    public int movieCount;
+
+    @Param({"s", "the m"})
+    public String query;
+
+    private final MovieSearchIndex<BenchMovie> index = new MovieSearchIndex<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(Payloads.nowPlaying(movieCount)), Payloads.UTF_8));
+        try {
+            index.addAll(MovieJsonParser.readPage(reader, 1, BenchMovie.FACTORY).getMovies());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    public List<BenchMovie> search() {
+        return index.search(query);
+    }
+}
@@ -0,0 +1,124 @@
+package com.codepath.flickster.benchmarks;
+
+import com.codepath.flickster.core.catalog.MovieCatalog;
+import com.codepath.flickster.core.json.MovieJsonParser;
+import com.codepath.flickster.core.model.MovieRecord;
+import com.codepath.flickster.core.snapshot.CatalogSnapshot;
+import com.codepath.flickster.core.snapshot.MovieListSnapshot;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write and read back of a movie list snapshot, and a cold start load of a
+ * list from a memory mapped catalog snapshot: what MovieRepository.loadList
+ * does up to the displays of the first screen, and the same load copying
+ * every row into a catalog first for comparison.
+ *
+ * @author yvastavaus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+
+    @Param({"20", "1000", "50000"})
+    public int movieCount;
+
+    // Rows bound by the first screen of the list.
+    private static final int FIRST_SCREEN_ROWS = 20;
+
+    private ArrayList<BenchMovie> movies;
+    private byte[] snapshot;
+    private File catalogSnapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(Payloads.nowPlaying(movieCount)), Payloads.UTF_8));
+        try {
+            movies = MovieJsonParser.readPage(reader, 1, BenchMovie.FACTORY).getMovies();
+        } finally {
+            reader.close();
+        }
+        snapshot = write();
+        catalogSnapshot = File.createTempFile("catalog", ".snap");
+        CatalogSnapshot.write(catalogSnapshot, movies, 1, 1, System.currentTimeMillis());
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogSnapshot.delete();
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(snapshot != null ? snapshot.length : 32);
+        DataOutputStream output = new DataOutputStream(outputStream);
+        MovieListSnapshot.write(movies, output);
+        output.flush();
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public ArrayList<BenchMovie> read() throws IOException {
+        return MovieListSnapshot.read(new DataInputStream(new ByteArrayInputStream(snapshot)), BenchMovie.FACTORY);
+    }
+
+    @Benchmark
+    public int loadList() throws IOException {
+        ArrayList<MovieRecord> rows = mapRows();
+        int[] ids = new int[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i).getId();
+        }
+        return ids.length + readFirstScreen(rows);
+    }
+
+    @Benchmark
+    public int loadListIntoCatalog() throws IOException {
+        ArrayList<MovieRecord> rows = mapRows();
+        MovieCatalog catalog = new MovieCatalog(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            rows.set(i, catalog.put(rows.get(i)));
+        }
+        return catalog.size() + readFirstScreen(rows);
+    }
+
+    private ArrayList<MovieRecord> mapRows() throws IOException {
+        return new ArrayList<MovieRecord>(CatalogSnapshot.map(catalogSnapshot).getRows());
+    }
+
+    /**
+     * Reads the fields MovieDisplayBuilder reads, for the rows bound by the first screen.
+     */
+    private static int readFirstScreen(List<MovieRecord> rows) {
+        int length = 0;
+        for (int i = 0; i < Math.min(FIRST_SCREEN_ROWS, rows.size()); i++) {
+            MovieRecord row = rows.get(i);
+            length += row.getId() + row.getOriginalTitle().length() + row.getOverView().length()
+                    + row.getRawPosterPath().length() + row.getRawBackdropPath().length()
+                    + row.getReleaseDate().length() + (int) row.getVoteAverage();
+        }
+        return length;
+    }
+}
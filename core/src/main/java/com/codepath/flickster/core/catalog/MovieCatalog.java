@@ -0,0 +1,367 @@
+package com.codepath.flickster.core.catalog;
+
+import com.codepath.flickster.core.model.MovieFactory;
+import com.codepath.flickster.core.model.MovieRecord;
+
+import java.util.Arrays;
+
+/**
+ * Compact store of many movies, one primitive array per field instead of one
+ * object per movie.
+ *
+ * Ids and vote averages are kept as is, release dates in the API format are
+ * packed in an int (e.g. 20160803) and every string goes in a shared
+ * {@link StringTable}, so a paged back catalog of tens of thousands of movies
+ * holds a handful of arrays. Movies are handed out as {@link Row} views which
+ * read the columns on demand, or built with a {@link MovieFactory} when a
+ * full model is needed.
+ *
+ * Append only: a movie put again with a different content gets a new row,
+ * the previous row stays valid for the views holding it until the catalog
+ * is {@link #compact(int[]) compacted} into a new one. Thread safe.
+ *
+ * @author yvastavaus.
+ */
+public final class MovieCatalog {
+
+    private static final int NO_ROW = -1;
+    // Release dates which aren't in the API format are kept in the string
+    // table, as -(index + 2) so they can't be mistaken for a packed date or
+    // for no date.
+    private static final int NO_DATE = 0;
+
+    // String columns.
+    private static final int POSTER_PATH = 0;
+    private static final int BACKDROP_PATH = 1;
+    private static final int TITLE = 2;
+    private static final int OVERVIEW = 3;
+
+    private int size;
+    private int[] ids;
+    private double[] voteAverages;
+    private int[] releaseDates;
+    private int[] posterPaths;
+    private int[] backdropPaths;
+    private int[] titles;
+    private int[] overviews;
+    private final StringTable strings;
+    // Open addressing row + 1 of the latest row of every id, 0 for an empty slot.
+    private int[] rowsById;
+    private int idCount;
+
+    public MovieCatalog() {
+        this(16);
+    }
+
+    public MovieCatalog(int expectedMovies) {
+        int capacity = Math.max(4, expectedMovies);
+        ids = new int[capacity];
+        voteAverages = new double[capacity];
+        releaseDates = new int[capacity];
+        posterPaths = new int[capacity];
+        backdropPaths = new int[capacity];
+        titles = new int[capacity];
+        overviews = new int[capacity];
+        // Paths and title take about 80 characters, overviews about 300.
+        strings = new StringTable(capacity * 4, capacity * 384);
+        rowsById = new int[tableSizeFor(capacity)];
+    }
+
+    /**
+     * Lightweight view of a row, reading its fields from the catalog. Rows
+     * never change so neither does the view.
+     */
+    public static final class Row implements MovieRecord {
+        private final MovieCatalog catalog;
+        private final int row;
+
+        Row(MovieCatalog catalog, int row) {
+            this.catalog = catalog;
+            this.row = row;
+        }
+
+        @Override
+        public int getId() {
+            return catalog.getId(row);
+        }
+
+        @Override
+        public String getRawPosterPath() {
+            return catalog.getString(row, POSTER_PATH);
+        }
+
+        @Override
+        public String getRawBackdropPath() {
+            return catalog.getString(row, BACKDROP_PATH);
+        }
+
+        @Override
+        public String getOriginalTitle() {
+            return catalog.getString(row, TITLE);
+        }
+
+        @Override
+        public String getOverView() {
+            return catalog.getString(row, OVERVIEW);
+        }
+
+        @Override
+        public String getReleaseDate() {
+            return catalog.getReleaseDate(row);
+        }
+
+        @Override
+        public double getVoteAverage() {
+            return catalog.getVoteAverage(row);
+        }
+
+        /**
+         * Views of the same row are equal, i.e. they have the same content.
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Row && ((Row) other).catalog == catalog && ((Row) other).row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(catalog) + row;
+        }
+    }
+
+    /**
+     * @return rows held, including the ones superseded by a newer row of the same movie.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return movies held, i.e. distinct ids.
+     */
+    public synchronized int getMovieCount() {
+        return idCount;
+    }
+
+    /**
+     * @return distinct strings held, e.g. to check they are shared between rows.
+     */
+    synchronized int getStringCount() {
+        return strings.size();
+    }
+
+    /**
+     * Adds the movie unless its latest row already has the same content.
+     *
+     * @return view of the latest row of the movie.
+     */
+    public synchronized Row put(MovieRecord movie) {
+        int slot = findSlot(movie.getId());
+        if (rowsById[slot] != 0 && isSameContent(rowsById[slot] - 1, movie)) {
+            return new Row(this, rowsById[slot] - 1);
+        }
+        if (rowsById[slot] == 0) {
+            idCount++;
+        }
+        int row = append(movie);
+        rowsById[slot] = row + 1;
+        if (idCount * 2 > rowsById.length) {
+            rehash(rowsById.length * 2);
+        }
+        return new Row(this, row);
+    }
+
+    /**
+     * @return view of the latest row of the movie, null if it isn't held.
+     */
+    public synchronized Row get(int id) {
+        int row = indexOf(id);
+        return row == NO_ROW ? null : new Row(this, row);
+    }
+
+    /**
+     * @return the movie built from its latest row, null if it isn't held.
+     */
+    public synchronized <T> T get(int id, MovieFactory<T> factory) {
+        int row = indexOf(id);
+        if (row == NO_ROW) {
+            return null;
+        }
+        return factory.create(ids[row], strings.get(posterPaths[row]), strings.get(backdropPaths[row]),
+                strings.get(titles[row]), strings.get(overviews[row]), getReleaseDate(row), voteAverages[row]);
+    }
+
+    public synchronized boolean contains(int id) {
+        return indexOf(id) != NO_ROW;
+    }
+
+    /**
+     * @return a new catalog holding the latest rows of the given movies only,
+     *         unknown ids are skipped. This catalog is left as is.
+     */
+    public synchronized MovieCatalog compact(int[] keptIds) {
+        MovieCatalog compacted = new MovieCatalog(keptIds.length);
+        for (int id : keptIds) {
+            int row = indexOf(id);
+            if (row != NO_ROW) {
+                compacted.put(new Row(this, row));
+            }
+        }
+        return compacted;
+    }
+
+    private int indexOf(int id) {
+        return rowsById[findSlot(id)] - 1;
+    }
+
+    synchronized int getId(int row) {
+        return ids[row];
+    }
+
+    synchronized double getVoteAverage(int row) {
+        return voteAverages[row];
+    }
+
+    synchronized String getString(int row, int column) {
+        switch (column) {
+            case POSTER_PATH:
+                return strings.get(posterPaths[row]);
+            case BACKDROP_PATH:
+                return strings.get(backdropPaths[row]);
+            case TITLE:
+                return strings.get(titles[row]);
+            default:
+                return strings.get(overviews[row]);
+        }
+    }
+
+    synchronized String getReleaseDate(int row) {
+        int date = releaseDates[row];
+        if (date == NO_DATE) {
+            return null;
+        }
+        if (date < 0) {
+            return strings.get(-date - 2);
+        }
+        return unpackDate(date);
+    }
+
+    private int append(MovieRecord movie) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            voteAverages = Arrays.copyOf(voteAverages, capacity);
+            releaseDates = Arrays.copyOf(releaseDates, capacity);
+            posterPaths = Arrays.copyOf(posterPaths, capacity);
+            backdropPaths = Arrays.copyOf(backdropPaths, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            overviews = Arrays.copyOf(overviews, capacity);
+        }
+        int row = size++;
+        ids[row] = movie.getId();
+        voteAverages[row] = movie.getVoteAverage();
+        releaseDates[row] = packDate(movie.getReleaseDate());
+        posterPaths[row] = strings.add(movie.getRawPosterPath());
+        backdropPaths[row] = strings.add(movie.getRawBackdropPath());
+        titles[row] = strings.add(movie.getOriginalTitle());
+        overviews[row] = strings.add(movie.getOverView());
+        return row;
+    }
+
+    private boolean isSameContent(int row, MovieRecord movie) {
+        return Double.compare(voteAverages[row], movie.getVoteAverage()) == 0
+                && strings.matches(posterPaths[row], movie.getRawPosterPath())
+                && strings.matches(backdropPaths[row], movie.getRawBackdropPath())
+                && strings.matches(titles[row], movie.getOriginalTitle())
+                && strings.matches(overviews[row], movie.getOverView())
+                && isSameDate(releaseDates[row], movie.getReleaseDate());
+    }
+
+    private boolean isSameDate(int date, String releaseDate) {
+        if (date < 0) {
+            return strings.matches(-date - 2, releaseDate);
+        }
+        return releaseDate == null ? date == NO_DATE : date == parseDate(releaseDate);
+    }
+
+    /**
+     * @return the packed date, otherwise the string is added to the table and
+     *         its encoded index returned.
+     */
+    private int packDate(String releaseDate) {
+        if (releaseDate == null) {
+            return NO_DATE;
+        }
+        int packed = parseDate(releaseDate);
+        return packed != NO_DATE ? packed : -strings.add(releaseDate) - 2;
+    }
+
+    /**
+     * @return yyyymmdd of a date in the API format, {@link #NO_DATE} for
+     *         anything else. Dates packing to 0, e.g. "0000-00-00", don't pack.
+     */
+    private static int parseDate(String releaseDate) {
+        if (releaseDate.length() != 10 || releaseDate.charAt(4) != '-' || releaseDate.charAt(7) != '-') {
+            return NO_DATE;
+        }
+        int packed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 4 || i == 7) {
+                continue;
+            }
+            char c = releaseDate.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_DATE;
+            }
+            packed = packed * 10 + (c - '0');
+        }
+        return packed;
+    }
+
+    private static String unpackDate(int date) {
+        char[] chars = new char[10];
+        int value = date;
+        for (int i = 9; i >= 0; i--) {
+            if (i == 4 || i == 7) {
+                chars[i] = '-';
+                continue;
+            }
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(chars);
+    }
+
+    private int findSlot(int id) {
+        int mask = rowsById.length - 1;
+        int slot = mix(id) & mask;
+        while (rowsById[slot] != 0 && ids[rowsById[slot] - 1] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int tableSize) {
+        int[] previous = rowsById;
+        rowsById = new int[tableSize];
+        for (int entry : previous) {
+            if (entry != 0) {
+                rowsById[findSlot(ids[entry - 1])] = entry;
+            }
+        }
+    }
+
+    // Spreads sequential ids over the table.
+    private static int mix(int id) {
+        int hash = id * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableSizeFor(int entries) {
+        int size = 1;
+        while (size < entries * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,138 @@
+package com.codepath.flickster.core.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Append only table of distinct strings, the characters of all of them
+ * packed in a single array so a string costs its characters and an offset
+ * instead of a {@code String} and a {@code char[]} object.
+ *
+ * Strings are referenced by index, equal strings get the same index. Not
+ * thread safe.
+ *
+ * @author yvastavaus.
+ */
+final class StringTable {
+
+    static final int NULL = -1;
+
+    private char[] chars;
+    private int length;
+    // Start of every string in chars, the end is the start of the next one.
+    private int[] offsets;
+    private int count;
+    // Open addressing index + 1 of the strings by hash, 0 for an empty slot.
+    private int[] slots;
+
+    StringTable(int expectedStrings, int expectedChars) {
+        chars = new char[Math.max(16, expectedChars)];
+        offsets = new int[Math.max(4, expectedStrings) + 1];
+        slots = new int[tableSizeFor(Math.max(4, expectedStrings))];
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return index of the string, added if not in the table yet. {@link #NULL} for null.
+     */
+    int add(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        int mask = slots.length - 1;
+        int slot = value.hashCode() & mask;
+        while (slots[slot] != 0) {
+            int index = slots[slot] - 1;
+            if (matches(index, value)) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        ensureCapacity(value.length());
+        value.getChars(0, value.length(), chars, length);
+        length += value.length();
+        int index = count++;
+        offsets[count] = length;
+        slots[slot] = index + 1;
+        if (count * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return index;
+    }
+
+    /**
+     * @return the string at the index, a new instance every time. Null for {@link #NULL}.
+     */
+    String get(int index) {
+        if (index == NULL) {
+            return null;
+        }
+        return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    /**
+     * @return true if the string at the index equals the value, without creating it.
+     */
+    boolean matches(int index, String value) {
+        if (index == NULL) {
+            return value == null;
+        }
+        if (value == null) {
+            return false;
+        }
+        int start = offsets[index];
+        int end = offsets[index + 1];
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (chars[i] != value.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int extraChars) {
+        if (length + extraChars > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + extraChars));
+        }
+        if (count + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+    }
+
+    private void rehash(int size) {
+        slots = new int[size];
+        int mask = size - 1;
+        for (int index = 0; index < count; index++) {
+            int slot = hash(index) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index + 1;
+        }
+    }
+
+    /**
+     * @return {@link String#hashCode()} of the string at the index.
+     */
+    private int hash(int index) {
+        int hash = 0;
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    private static int tableSizeFor(int strings) {
+        int size = 1;
+        while (size < strings * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,35 @@
+package com.codepath.flickster.core.format;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Formats the release dates of the Movie API, e.g. "2016-08-03", for display
+ * as "Aug 3, 2016".
+ *
+ * @author yvastavaus.
+ */
+public final class ReleaseDateFormatter {
+
+    private static final String API_PATTERN = "yyyy-MM-dd";
+    private static final String DISPLAY_PATTERN = "MMM d, yyyy";
+
+    private ReleaseDateFormatter() {}
+
+    /**
+     * @return the date formatted for display, or the input as is if it isn't
+     *         a date in the API format.
+     */
+    public static String format(String dateString) {
+        if (dateString == null) {
+            return null;
+        }
+        try {
+            Date date = new SimpleDateFormat(API_PATTERN).parse(dateString);
+            return new SimpleDateFormat(DISPLAY_PATTERN).format(date);
+        } catch (ParseException e) {
+            return dateString;
+        }
+    }
+}
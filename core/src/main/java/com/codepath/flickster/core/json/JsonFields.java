@@ -0,0 +1,76 @@
+package com.codepath.flickster.core.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Typed reads of single values from a {@link JsonReader}.
+ *
+ * Every read consumes the value even if it has an unexpected type so the
+ * reader stays positioned on the next name, which is what lets the parsers
+ * skip a bad element and carry on with the rest of the array.
+ *
+ * @author yvastavaus.
+ */
+final class JsonFields {
+
+    /**
+     * Thrown when a value does not have the expected type, the value has
+     * already been skipped at that point.
+     */
+    static class TypeMismatchException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        TypeMismatchException(String name, JsonToken token) {
+            super("unexpected " + token + " for field: " + name);
+        }
+    }
+
+    private JsonFields() {}
+
+    /**
+     * @return the string value, or "null" for a JSON null to keep the
+     *         behaviour of {@code JSONObject.getString}.
+     */
+    static String nextString(JsonReader reader, String name) throws IOException, TypeMismatchException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        } else if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return "null";
+        }
+        reader.skipValue();
+        throw new TypeMismatchException(name, token);
+    }
+
+    static double nextDouble(JsonReader reader, String name) throws IOException, TypeMismatchException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return reader.nextDouble();
+            } catch (NumberFormatException e) {
+                reader.skipValue();
+            }
+        } else {
+            reader.skipValue();
+        }
+        throw new TypeMismatchException(name, token);
+    }
+
+    static int nextInt(JsonReader reader, String name) throws IOException, TypeMismatchException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return reader.nextInt();
+            } catch (NumberFormatException e) {
+                reader.skipValue();
+            }
+        } else {
+            reader.skipValue();
+        }
+        throw new TypeMismatchException(name, token);
+    }
+}
@@ -0,0 +1,222 @@
+package com.codepath.flickster.core.json;
+
+import com.codepath.flickster.core.model.MovieFactory;
+import com.codepath.flickster.core.model.MoviePage;
+import com.codepath.flickster.core.model.VideoFactory;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the Movie API responses straight from the stream, without building
+ * an intermediate tree, handing the fields of every element to a factory.
+ *
+ * @author yvastavaus.
+ */
+public final class MovieJsonParser {
+
+    private static final Logger LOGGER = Logger.getLogger(MovieJsonParser.class.getSimpleName());
+
+    // Bit flags of the fields seen while reading a movie object, all of them are required.
+    private static final int FIELD_POSTER_PATH = 1;
+    private static final int FIELD_ORIGINAL_TITLE = 1 << 1;
+    private static final int FIELD_OVERVIEW = 1 << 2;
+    private static final int FIELD_BACKDROP_PATH = 1 << 3;
+    private static final int FIELD_VOTE_AVERAGE = 1 << 4;
+    private static final int FIELD_ID = 1 << 5;
+    private static final int FIELD_RELEASE_DATE = 1 << 6;
+    private static final int ALL_FIELDS = (1 << 7) - 1;
+
+    // A few hundred days cover every feed, the same dates come back on every page.
+    private static final StringPool RELEASE_DATES = new StringPool(1024);
+
+    private MovieJsonParser() {}
+
+    /**
+     * Reads the page envelope, only {@code page}, {@code total_pages} and
+     * {@code results} are kept.
+     *
+     * @param reader reader positioned on the root object.
+     * @param requestedPage page reported if the response does not carry one.
+     */
+    public static <T> MoviePage<T> readPage(JsonReader reader, int requestedPage, MovieFactory<T> factory) throws IOException {
+        int page = requestedPage;
+        int totalPages = requestedPage;
+        ArrayList<T> movies = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "page":
+                    page = reader.nextInt();
+                    break;
+                case "total_pages":
+                    totalPages = reader.nextInt();
+                    break;
+                case "results":
+                    movies = readMovies(reader, factory);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (movies == null) {
+            throw new IOException("missing results in the movie page");
+        }
+        return new MoviePage<>(page, totalPages, movies);
+    }
+
+    /**
+     * Reads a JSON array of movies, elements that can't be mapped to a movie
+     * are logged and skipped.
+     *
+     * @param reader reader positioned on the array.
+     */
+    public static <T> ArrayList<T> readMovies(JsonReader reader, MovieFactory<T> factory) throws IOException {
+        ArrayList<T> moviesList = new ArrayList<>();
+        reader.beginArray();
+        for (int i = 0; reader.hasNext(); i++) {
+            T movie = readMovie(reader, i, factory);
+            if (movie != null) {
+                moviesList.add(movie);
+            }
+        }
+        reader.endArray();
+        return moviesList;
+    }
+
+    /**
+     * Reads a single movie object, unknown fields are skipped.
+     *
+     * @return the movie or null if one of the fields is missing or has the wrong type.
+     */
+    private static <T> T readMovie(JsonReader reader, int position, MovieFactory<T> factory) throws IOException {
+        String posterPath = null;
+        String originalTitle = null;
+        String overView = null;
+        String backdropPath = null;
+        String releaseDate = null;
+        double voteAverage = 0;
+        int id = 0;
+        int fields = 0;
+        boolean isValid = true;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            try {
+                switch (name) {
+                    case "poster_path":
+                        posterPath = JsonFields.nextString(reader, name);
+                        fields |= FIELD_POSTER_PATH;
+                        break;
+                    case "original_title":
+                        originalTitle = JsonFields.nextString(reader, name);
+                        fields |= FIELD_ORIGINAL_TITLE;
+                        break;
+                    case "overview":
+                        overView = JsonFields.nextString(reader, name);
+                        fields |= FIELD_OVERVIEW;
+                        break;
+                    case "backdrop_path":
+                        backdropPath = JsonFields.nextString(reader, name);
+                        fields |= FIELD_BACKDROP_PATH;
+                        break;
+                    case "vote_average":
+                        voteAverage = JsonFields.nextDouble(reader, name);
+                        fields |= FIELD_VOTE_AVERAGE;
+                        break;
+                    case "id":
+                        id = JsonFields.nextInt(reader, name);
+                        fields |= FIELD_ID;
+                        break;
+                    case "release_date":
+                        releaseDate = RELEASE_DATES.intern(JsonFields.nextString(reader, name));
+                        fields |= FIELD_RELEASE_DATE;
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            } catch (JsonFields.TypeMismatchException e) {
+                LOGGER.log(Level.WARNING, "readMovie: error while parsing the movie object at position: " + position, e);
+                isValid = false;
+            }
+        }
+        reader.endObject();
+
+        if (!isValid) {
+            return null;
+        }
+        if (fields != ALL_FIELDS) {
+            LOGGER.warning("readMovie: missing fields in the movie object at position: " + position);
+            return null;
+        }
+        return factory.create(id, posterPath, backdropPath, originalTitle, overView, releaseDate, voteAverage);
+    }
+
+    /**
+     * Reads the {@code results} of a video response.
+     *
+     * @param reader reader positioned on the root object.
+     */
+    public static <T> ArrayList<T> readVideoResults(JsonReader reader, VideoFactory<T> factory) throws IOException {
+        ArrayList<T> videoList = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("results".equals(reader.nextName())) {
+                videoList = readVideos(reader, factory);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (videoList == null) {
+            throw new IOException("missing results in the video response");
+        }
+        return videoList;
+    }
+
+    /**
+     * Reads a JSON array of videos, elements without a usable key are logged
+     * and skipped.
+     *
+     * @param reader reader positioned on the array.
+     */
+    public static <T> ArrayList<T> readVideos(JsonReader reader, VideoFactory<T> factory) throws IOException {
+        ArrayList<T> videoList = new ArrayList<>();
+        reader.beginArray();
+        for (int i = 0; reader.hasNext(); i++) {
+            String key = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("key".equals(name)) {
+                    try {
+                        key = JsonFields.nextString(reader, name);
+                    } catch (JsonFields.TypeMismatchException e) {
+                        LOGGER.log(Level.WARNING, "readVideos: error while parsing the video object at position: " + i, e);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (key != null) {
+                videoList.add(factory.create(key));
+            } else {
+                LOGGER.warning("readVideos: missing key in the video object at position: " + i);
+            }
+        }
+        reader.endArray();
+        return videoList;
+    }
+}
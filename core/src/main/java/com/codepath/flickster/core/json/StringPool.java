@@ -0,0 +1,38 @@
+package com.codepath.flickster.core.json;
+
+import java.util.HashMap;
+
+/**
+ * Shares the instances of strings repeated across many movies, e.g. the
+ * release dates, so every movie of a date holds the same string.
+ *
+ * Bounded: once full, unknown strings are returned as is. Thread safe.
+ *
+ * @author yvastavaus.
+ */
+final class StringPool {
+
+    private final HashMap<String, String> strings = new HashMap<>();
+    private final int maxSize;
+
+    StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the pooled instance equal to the value, null for null.
+     */
+    synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = strings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (strings.size() < maxSize) {
+            strings.put(value, value);
+        }
+        return value;
+    }
+}
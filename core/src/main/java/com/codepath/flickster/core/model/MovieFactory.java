@@ -0,0 +1,14 @@
+package com.codepath.flickster.core.model;
+
+/**
+ * Creates the movie model of the caller from parsed or deserialized fields.
+ *
+ * @param <T> type of the movie model.
+ *
+ * @author yvastavaus.
+ */
+public interface MovieFactory<T> {
+
+    T create(int id, String posterPath, String backdropPath, String originalTitle,
+             String overView, String releaseDate, double voteAverage);
+}
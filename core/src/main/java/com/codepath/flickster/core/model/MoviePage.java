@@ -0,0 +1,35 @@
+package com.codepath.flickster.core.model;
+
+import java.util.ArrayList;
+
+/**
+ * One page of a paginated movie feed as returned by the Movie API.
+ *
+ * @param <T> type of the movie model.
+ *
+ * @author yvastavaus.
+ */
+public class MoviePage<T> {
+
+    private final int page;
+    private final int totalPages;
+    private final ArrayList<T> movies;
+
+    public MoviePage(int page, int totalPages, ArrayList<T> movies) {
+        this.page = page;
+        this.totalPages = totalPages;
+        this.movies = movies;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public ArrayList<T> getMovies() {
+        return movies;
+    }
+}
@@ -0,0 +1,30 @@
+package com.codepath.flickster.core.model;
+
+/**
+ * Fields of a movie as returned by the Movie API, implemented by the models
+ * of the app so the core can read them without knowing their type.
+ *
+ * @author yvastavaus.
+ */
+public interface MovieRecord {
+
+    int getId();
+
+    /**
+     * @return poster path as returned by the API, "null" if there is none.
+     */
+    String getRawPosterPath();
+
+    /**
+     * @return backdrop path as returned by the API, "null" if there is none.
+     */
+    String getRawBackdropPath();
+
+    String getOriginalTitle();
+
+    String getOverView();
+
+    String getReleaseDate();
+
+    double getVoteAverage();
+}
@@ -0,0 +1,32 @@
+package com.codepath.flickster.core.model;
+
+/**
+ * Helpers over {@link MovieRecord}s whatever their implementation.
+ *
+ * @author yvastavaus.
+ */
+public final class MovieRecords {
+
+    private MovieRecords() {}
+
+    /**
+     * @return true if both movies display exactly the same data, always for
+     *         {@link Object#equals(Object) equal} movies.
+     */
+    public static boolean isSameContent(MovieRecord movie, MovieRecord other) {
+        if (movie.equals(other)) {
+            return true;
+        }
+        return movie.getId() == other.getId()
+                && Double.compare(movie.getVoteAverage(), other.getVoteAverage()) == 0
+                && equals(movie.getRawPosterPath(), other.getRawPosterPath())
+                && equals(movie.getRawBackdropPath(), other.getRawBackdropPath())
+                && equals(movie.getOriginalTitle(), other.getOriginalTitle())
+                && equals(movie.getOverView(), other.getOverView())
+                && equals(movie.getReleaseDate(), other.getReleaseDate());
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,13 @@
+package com.codepath.flickster.core.model;
+
+/**
+ * Creates the video model of the caller from a parsed key.
+ *
+ * @param <T> type of the video model.
+ *
+ * @author yvastavaus.
+ */
+public interface VideoFactory<T> {
+
+    T create(String key);
+}
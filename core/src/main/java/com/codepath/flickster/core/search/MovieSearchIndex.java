@@ -0,0 +1,260 @@
+package com.codepath.flickster.core.search;
+
+import com.codepath.flickster.core.model.MovieRecord;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Full text index over the titles and overviews of movies, for as you type
+ * search.
+ *
+ * Tokens map to the movies containing them (inverted index) and are kept
+ * sorted, so every token starting with a prefix is a range lookup instead
+ * of a scan. Every word of a query has to match a token, the last one as a
+ * prefix since it may not be fully typed yet. Results are ranked by match
+ * quality (title before overview, whole word before prefix) then by vote
+ * average.
+ *
+ * Movies are indexed as they are added, only movies not seen before or
+ * replaced by a movie not {@link Object#equals(Object) equal} to the indexed
+ * one (e.g. another instance, or another row of a catalog) are
+ * (re)tokenized.
+ *
+ * Thread safe.
+ *
+ * @param <T> type of the indexed movies.
+ *
+ * @author yvastavaus.
+ */
+public class MovieSearchIndex<T extends MovieRecord> {
+
+    // Weights of a match, the best one of every query word counts.
+    private static final int TITLE_WORD = 8;
+    private static final int TITLE_PREFIX = 4;
+    private static final int OVERVIEW_WORD = 2;
+    private static final int OVERVIEW_PREFIX = 1;
+
+    // Token to the movies containing it, by id, with the field it is in.
+    private final TreeMap<String, HashMap<Integer, Posting>> postings = new TreeMap<>();
+    private final HashMap<Integer, Document<T>> documents = new HashMap<>();
+
+    private static class Posting {
+        boolean inTitle;
+        boolean inOverview;
+    }
+
+    private static class Document<T> {
+        final T movie;
+        final HashSet<String> tokens;
+
+        Document(T movie, HashSet<String> tokens) {
+            this.movie = movie;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * Indexes the movies not indexed yet, and the ones indexed under a movie
+     * which isn't equal (e.g. refreshed) again.
+     */
+    public synchronized void addAll(List<? extends T> movies) {
+        for (T movie : movies) {
+            Document<T> document = documents.get(movie.getId());
+            if (document != null && document.movie.equals(movie)) {
+                continue;
+            }
+            if (document != null) {
+                removeDocument(movie.getId(), document);
+            }
+            addDocument(movie);
+        }
+    }
+
+    /**
+     * Makes the index hold exactly the given movies, touching only the ones
+     * added, replaced or removed since the last update.
+     */
+    public synchronized void update(List<? extends T> movies) {
+        HashSet<Integer> ids = new HashSet<>(movies.size() * 2);
+        for (T movie : movies) {
+            ids.add(movie.getId());
+        }
+        ArrayList<Integer> removedIds = new ArrayList<>();
+        for (Integer id : documents.keySet()) {
+            if (!ids.contains(id)) {
+                removedIds.add(id);
+            }
+        }
+        for (Integer id : removedIds) {
+            removeDocument(id, documents.get(id));
+        }
+        addAll(movies);
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    /**
+     * @return the movies matching every word of the query, best first. Empty
+     *         if the query has no words.
+     */
+    public synchronized List<T> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean isLastWordComplete = !query.isEmpty() && !Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        HashMap<Integer, Integer> scores = null;
+        for (int i = 0; i < words.size(); i++) {
+            boolean isPrefix = i == words.size() - 1 && !isLastWordComplete;
+            HashMap<Integer, Integer> wordScores = score(words.get(i), isPrefix);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                // Only movies matching every word so far are kept.
+                HashMap<Integer, Integer> matched = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                    Integer wordScore = wordScores.get(entry.getKey());
+                    if (wordScore != null) {
+                        matched.put(entry.getKey(), entry.getValue() + wordScore);
+                    }
+                }
+                scores = matched;
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return rank(scores);
+    }
+
+    /**
+     * @return best score of every movie matching the word, by id.
+     */
+    private HashMap<Integer, Integer> score(String word, boolean isPrefix) {
+        HashMap<Integer, Integer> scores = new HashMap<>();
+        SortedMap<String, HashMap<Integer, Posting>> matches = isPrefix
+                ? postings.subMap(word, word + Character.MAX_VALUE)
+                : postings.subMap(word, word + Character.MIN_VALUE);
+        for (Map.Entry<String, HashMap<Integer, Posting>> match : matches.entrySet()) {
+            boolean isWholeWord = match.getKey().length() == word.length();
+            for (Map.Entry<Integer, Posting> posting : match.getValue().entrySet()) {
+                int score = 0;
+                if (posting.getValue().inTitle) {
+                    score = isWholeWord ? TITLE_WORD : TITLE_PREFIX;
+                }
+                if (posting.getValue().inOverview) {
+                    score = Math.max(score, isWholeWord ? OVERVIEW_WORD : OVERVIEW_PREFIX);
+                }
+                Integer previous = scores.get(posting.getKey());
+                if (previous == null || previous < score) {
+                    scores.put(posting.getKey(), score);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private List<T> rank(final HashMap<Integer, Integer> scores) {
+        ArrayList<T> results = new ArrayList<>(scores.size());
+        for (Integer id : scores.keySet()) {
+            results.add(documents.get(id).movie);
+        }
+        Collections.sort(results, new Comparator<T>() {
+            @Override
+            public int compare(T lhs, T rhs) {
+                int byScore = scores.get(rhs.getId()).compareTo(scores.get(lhs.getId()));
+                if (byScore != 0) {
+                    return byScore;
+                }
+                int byVotes = Double.compare(rhs.getVoteAverage(), lhs.getVoteAverage());
+                return byVotes != 0 ? byVotes : lhs.getId() - rhs.getId();
+            }
+        });
+        return results;
+    }
+
+    private void addDocument(T movie) {
+        HashSet<String> tokens = new HashSet<>();
+        addTokens(movie.getId(), movie.getOriginalTitle(), true, tokens);
+        addTokens(movie.getId(), movie.getOverView(), false, tokens);
+        documents.put(movie.getId(), new Document<>(movie, tokens));
+    }
+
+    private void addTokens(int id, String text, boolean isTitle, HashSet<String> tokens) {
+        for (String token : tokenize(text)) {
+            HashMap<Integer, Posting> movies = postings.get(token);
+            if (movies == null) {
+                movies = new HashMap<>();
+                postings.put(token, movies);
+            }
+            Posting posting = movies.get(id);
+            if (posting == null) {
+                posting = new Posting();
+                movies.put(id, posting);
+            }
+            if (isTitle) {
+                posting.inTitle = true;
+            } else {
+                posting.inOverview = true;
+            }
+            tokens.add(token);
+        }
+    }
+
+    private void removeDocument(int id, Document<T> document) {
+        for (String token : document.tokens) {
+            HashMap<Integer, Posting> movies = postings.get(token);
+            movies.remove(id);
+            if (movies.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+        documents.remove(id);
+    }
+
+    /**
+     * Splits text into lower case words, without accents, e.g. "Pok&eacute;mon: Go!"
+     * into "pokemon" and "go".
+     */
+    static List<String> tokenize(String text) {
+        ArrayList<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.US);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
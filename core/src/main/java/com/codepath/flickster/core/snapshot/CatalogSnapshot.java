@@ -0,0 +1,341 @@
+package com.codepath.flickster.core.snapshot;
+
+import com.codepath.flickster.core.model.MovieRecord;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a movie list, read through a memory mapped file so a
+ * cold start shows the stored movies without parsing them first.
+ *
+ * Layout, big endian:
+ * <ol>
+ *     <li>header: magic, version, CRC32 of everything after it, movie count,
+ *     page, total pages, fetch time and heap size,</li>
+ *     <li>index: one fixed width record per movie, id, vote average and the
+ *     offset and length of every string in the heap (length -1 for null),</li>
+ *     <li>heap: the strings in UTF-8, each distinct string written once.</li>
+ * </ol>
+ * The movies are {@link Row} views reading the mapped file on demand, so
+ * opening a snapshot only costs the checksum. A snapshot of another version,
+ * truncated or corrupted doesn't open, the caller falls back to its other
+ * storage.
+ *
+ * Written atomically: to a temporary file synced to disk, then renamed over
+ * the previous snapshot which stays readable by the views still mapping it.
+ *
+ * @author yvastavaus.
+ */
+public final class CatalogSnapshot {
+
+    private static final int MAGIC = 0x464c4b43; // "FLKC"
+    public static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Header, the checksum covers everything from CHECKED_START on.
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_CRC = 8;
+    private static final int CHECKED_START = 12;
+    private static final int OFFSET_COUNT = 12;
+    private static final int OFFSET_PAGE = 16;
+    private static final int OFFSET_TOTAL_PAGES = 20;
+    private static final int OFFSET_FETCHED_AT = 24;
+    private static final int OFFSET_HEAP_SIZE = 32;
+    private static final int HEADER_SIZE = 36;
+
+    // Index record: id, vote average, then offset and length of every string.
+    private static final int RECORD_ID = 0;
+    private static final int RECORD_VOTE_AVERAGE = 4;
+    private static final int RECORD_STRINGS = 12;
+    private static final int POSTER_PATH = 0;
+    private static final int BACKDROP_PATH = 1;
+    private static final int TITLE = 2;
+    private static final int OVERVIEW = 3;
+    private static final int RELEASE_DATE = 4;
+    private static final int STRING_COUNT = 5;
+    private static final int RECORD_SIZE = RECORD_STRINGS + STRING_COUNT * 8;
+
+    private static final int CHECKSUM_CHUNK = 8192;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int heapStart;
+
+    private CatalogSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.count = buffer.getInt(OFFSET_COUNT);
+        this.heapStart = HEADER_SIZE + count * RECORD_SIZE;
+    }
+
+    /**
+     * Lightweight view of a movie of the snapshot, its strings are decoded
+     * from the mapped file every time they are read.
+     */
+    public static final class Row implements MovieRecord {
+        private final CatalogSnapshot snapshot;
+        private final int record;
+
+        Row(CatalogSnapshot snapshot, int index) {
+            this.snapshot = snapshot;
+            this.record = HEADER_SIZE + index * RECORD_SIZE;
+        }
+
+        @Override
+        public int getId() {
+            return snapshot.buffer.getInt(record + RECORD_ID);
+        }
+
+        @Override
+        public String getRawPosterPath() {
+            return snapshot.getString(record, POSTER_PATH);
+        }
+
+        @Override
+        public String getRawBackdropPath() {
+            return snapshot.getString(record, BACKDROP_PATH);
+        }
+
+        @Override
+        public String getOriginalTitle() {
+            return snapshot.getString(record, TITLE);
+        }
+
+        @Override
+        public String getOverView() {
+            return snapshot.getString(record, OVERVIEW);
+        }
+
+        @Override
+        public String getReleaseDate() {
+            return snapshot.getString(record, RELEASE_DATE);
+        }
+
+        @Override
+        public double getVoteAverage() {
+            return snapshot.buffer.getDouble(record + RECORD_VOTE_AVERAGE);
+        }
+
+        /**
+         * Views of the same movie of the same snapshot are equal.
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Row && ((Row) other).snapshot == snapshot && ((Row) other).record == record;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(snapshot) + record;
+        }
+    }
+
+    /**
+     * Maps the snapshot and verifies it, the file can be replaced or deleted
+     * afterwards.
+     *
+     * @throws IOException if the file can't be read or isn't a valid snapshot
+     *         of this version.
+     */
+    public static CatalogSnapshot map(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        MappedByteBuffer buffer;
+        try {
+            FileChannel channel = input.getChannel();
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("invalid snapshot size: " + channel.size());
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            input.close();
+        }
+        return open(buffer);
+    }
+
+    /**
+     * @throws IOException if the buffer isn't a valid snapshot of this version.
+     */
+    static CatalogSnapshot open(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a catalog snapshot");
+        }
+        int version = buffer.getInt(OFFSET_VERSION);
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version: " + version);
+        }
+        long count = buffer.getInt(OFFSET_COUNT);
+        long heapSize = buffer.getInt(OFFSET_HEAP_SIZE);
+        if (count < 0 || heapSize < 0 || HEADER_SIZE + count * RECORD_SIZE + heapSize != buffer.capacity()) {
+            throw new IOException("truncated snapshot");
+        }
+        if (checksum(buffer) != buffer.getInt(OFFSET_CRC)) {
+            throw new IOException("snapshot checksum mismatch");
+        }
+        return new CatalogSnapshot(buffer);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getPage() {
+        return buffer.getInt(OFFSET_PAGE);
+    }
+
+    public int getTotalPages() {
+        return buffer.getInt(OFFSET_TOTAL_PAGES);
+    }
+
+    public long getFetchedAt() {
+        return buffer.getLong(OFFSET_FETCHED_AT);
+    }
+
+    public Row get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+        }
+        return new Row(this, index);
+    }
+
+    /**
+     * @return the movies of the snapshot, views created as they are read.
+     */
+    public List<Row> getRows() {
+        return new AbstractList<Row>() {
+            @Override
+            public Row get(int index) {
+                return CatalogSnapshot.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    private String getString(int record, int field) {
+        int offset = buffer.getInt(record + RECORD_STRINGS + field * 8);
+        int length = buffer.getInt(record + RECORD_STRINGS + field * 8 + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        // A duplicate so concurrent readers don't share a position.
+        ByteBuffer heap = buffer.duplicate();
+        heap.position(heapStart + offset);
+        heap.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes the snapshot of the movies to the file, replacing it atomically.
+     */
+    public static void write(File file, List<? extends MovieRecord> movies, int page, int totalPages,
+                             long fetchedAt) throws IOException {
+        byte[] snapshot = toBytes(movies, page, totalPages, fetchedAt);
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        FileOutputStream output = new FileOutputStream(temporaryFile);
+        try {
+            output.write(snapshot);
+            output.flush();
+            // On disk before the rename, a crash leaves the old or the new snapshot.
+            output.getFD().sync();
+        } finally {
+            output.close();
+        }
+        if (!temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException("unable to replace " + file);
+        }
+    }
+
+    static byte[] toBytes(List<? extends MovieRecord> movies, int page, int totalPages, long fetchedAt) {
+        ByteBuffer index = ByteBuffer.allocate(movies.size() * RECORD_SIZE);
+        Heap heap = new Heap();
+        for (MovieRecord movie : movies) {
+            index.putInt(movie.getId());
+            index.putDouble(movie.getVoteAverage());
+            heap.putRef(index, movie.getRawPosterPath());
+            heap.putRef(index, movie.getRawBackdropPath());
+            heap.putRef(index, movie.getOriginalTitle());
+            heap.putRef(index, movie.getOverView());
+            heap.putRef(index, movie.getReleaseDate());
+        }
+
+        ByteBuffer snapshot = ByteBuffer.allocate(HEADER_SIZE + index.capacity() + heap.size);
+        snapshot.putInt(MAGIC);
+        snapshot.putInt(VERSION);
+        snapshot.putInt(0);
+        snapshot.putInt(movies.size());
+        snapshot.putInt(page);
+        snapshot.putInt(totalPages);
+        snapshot.putLong(fetchedAt);
+        snapshot.putInt(heap.size);
+        snapshot.put(index.array());
+        snapshot.put(heap.bytes, 0, heap.size);
+        snapshot.putInt(OFFSET_CRC, checksum(snapshot));
+        return snapshot.array();
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.position(CHECKED_START);
+        checked.limit(checked.capacity());
+        byte[] chunk = new byte[CHECKSUM_CHUNK];
+        while (checked.hasRemaining()) {
+            int length = Math.min(chunk.length, checked.remaining());
+            checked.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Strings of the snapshot being written, each distinct one once.
+     */
+    private static class Heap {
+        private final HashMap<String, Integer> offsets = new HashMap<>();
+        private byte[] bytes = new byte[4096];
+        private int size;
+
+        void putRef(ByteBuffer index, String value) {
+            if (value == null) {
+                index.putInt(0);
+                index.putInt(-1);
+                return;
+            }
+            byte[] encoded = value.getBytes(UTF_8);
+            Integer offset = offsets.get(value);
+            if (offset == null) {
+                offset = size;
+                append(encoded);
+                offsets.put(value, offset);
+            }
+            index.putInt(offset);
+            index.putInt(encoded.length);
+        }
+
+        private void append(byte[] encoded) {
+            if (size + encoded.length > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, size + encoded.length)];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+    }
+}
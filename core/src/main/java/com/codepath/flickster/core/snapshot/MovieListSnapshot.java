@@ -0,0 +1,82 @@
+package com.codepath.flickster.core.snapshot;
+
+import com.codepath.flickster.core.model.MovieFactory;
+import com.codepath.flickster.core.model.MovieRecord;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of a movie list, for saving a list and reading it back
+ * without going through JSON.
+ *
+ * Layout: magic, version, count, then the fields of every movie in order.
+ * Strings are written as a presence flag followed by modified UTF-8.
+ *
+ * @author yvastavaus.
+ */
+public final class MovieListSnapshot {
+
+    private static final int MAGIC = 0x464c4b53; // "FLKS"
+    public static final int VERSION = 1;
+
+    private MovieListSnapshot() {}
+
+    public static void write(List<? extends MovieRecord> movies, DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(movies.size());
+        for (MovieRecord movie : movies) {
+            output.writeInt(movie.getId());
+            writeString(output, movie.getRawPosterPath());
+            writeString(output, movie.getRawBackdropPath());
+            writeString(output, movie.getOriginalTitle());
+            writeString(output, movie.getOverView());
+            writeString(output, movie.getReleaseDate());
+            output.writeDouble(movie.getVoteAverage());
+        }
+    }
+
+    /**
+     * @throws IOException if the input is not a snapshot of this version.
+     */
+    public static <T> ArrayList<T> read(DataInput input, MovieFactory<T> factory) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("not a movie list snapshot");
+        }
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version: " + version);
+        }
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("invalid movie count: " + count);
+        }
+        ArrayList<T> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = input.readInt();
+            String posterPath = readString(input);
+            String backdropPath = readString(input);
+            String originalTitle = readString(input);
+            String overView = readString(input);
+            String releaseDate = readString(input);
+            double voteAverage = input.readDouble();
+            movies.add(factory.create(id, posterPath, backdropPath, originalTitle, overView, releaseDate, voteAverage));
+        }
+        return movies;
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
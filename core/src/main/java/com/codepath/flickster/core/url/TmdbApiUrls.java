@@ -0,0 +1,28 @@
+package com.codepath.flickster.core.url;
+
+import java.util.Locale;
+
+/**
+ * Endpoints of the Movie API used by the app.
+ *
+ * @author yvastavaus.
+ */
+public final class TmdbApiUrls {
+
+    private static final String MOVIES = "https://api.themoviedb.org/3/movie/%1$s?api_key=a07e22bc18f5cb106bfe4cc1f83ad8ed&page=%2$d";
+    private static final String VIDEOS = "https://api.themoviedb.org/3/movie/%1$d/videos?api_key=a07e22bc18f5cb106bfe4cc1f83ad8ed";
+
+    private TmdbApiUrls() {}
+
+    /**
+     * @param feed movie list of the API, e.g. "now_playing" or "top_rated".
+     * @param page 1 based page index.
+     */
+    public static String movies(String feed, int page) {
+        return String.format(Locale.US, MOVIES, feed, page);
+    }
+
+    public static String videos(int movieId) {
+        return String.format(Locale.US, VIDEOS, movieId);
+    }
+}
@@ -0,0 +1,73 @@
+package com.codepath.flickster.core.url;
+
+/**
+ * Builds TMDB image URLs of the smallest size bucket that still covers the
+ * width an image is displayed at.
+ *
+ * @author yvastavaus.
+ */
+public final class TmdbImageUrls {
+
+    private static final String IMAGE_BASE_URL = "https://image.tmdb.org/t/p/";
+    private static final String SIZE_ORIGINAL = "original";
+
+    // Size buckets served by TMDB, see /configuration.
+    private static final int[] POSTER_WIDTHS = {92, 154, 185, 342, 500, 780};
+    private static final int[] BACKDROP_WIDTHS = {300, 780, 1280};
+
+    // Base url and size of every bucket, built once and shared by every url.
+    private static final String[] POSTER_PREFIXES = prefixes(POSTER_WIDTHS);
+    private static final String[] BACKDROP_PREFIXES = prefixes(BACKDROP_WIDTHS);
+    private static final String ORIGINAL_PREFIX = IMAGE_BASE_URL + SIZE_ORIGINAL;
+
+    private TmdbImageUrls() {}
+
+    /**
+     * @param path poster path as returned by the API.
+     * @return url of the poster covering the width or null if there is no poster.
+     */
+    public static String posterUrl(String path, int targetWidth) {
+        return buildUrl(path, selectPrefix(POSTER_WIDTHS, POSTER_PREFIXES, targetWidth));
+    }
+
+    /**
+     * @param path backdrop path as returned by the API.
+     * @return url of the backdrop covering the width or null if there is no backdrop.
+     */
+    public static String backdropUrl(String path, int targetWidth) {
+        return buildUrl(path, selectPrefix(BACKDROP_WIDTHS, BACKDROP_PREFIXES, targetWidth));
+    }
+
+    /**
+     * @return prefix of the smallest bucket at least as wide as the target, or of the original size.
+     */
+    private static String selectPrefix(int[] widths, String[] prefixes, int targetWidth) {
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] >= targetWidth) {
+                return prefixes[i];
+            }
+        }
+        return ORIGINAL_PREFIX;
+    }
+
+    private static String[] prefixes(int[] widths) {
+        String[] prefixes = new String[widths.length];
+        for (int i = 0; i < widths.length; i++) {
+            prefixes[i] = IMAGE_BASE_URL + "w" + widths[i];
+        }
+        return prefixes;
+    }
+
+    private static String buildUrl(String path, String prefix) {
+        if (path == null || path.isEmpty() || "null".equals(path)) {
+            // Picasso shows the placeholder for a null path without making any request.
+            return null;
+        }
+        StringBuilder url = new StringBuilder(prefix.length() + path.length() + 1);
+        url.append(prefix);
+        if (path.charAt(0) != '/') {
+            url.append('/');
+        }
+        return url.append(path).toString();
+    }
+}
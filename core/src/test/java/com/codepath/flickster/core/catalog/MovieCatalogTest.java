@@ -0,0 +1,103 @@
+package com.codepath.flickster.core.catalog;
+
+import com.codepath.flickster.core.model.MovieRecords;
+import com.codepath.flickster.core.model.TestMovie;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MovieCatalogTest {
+
+    @Test
+    public void put_readsBackEveryField() {
+        MovieCatalog catalog = new MovieCatalog();
+        TestMovie movie = new TestMovie(42, "/poster.jpg", null, "Star Wars", "A galaxy far, far away.",
+                "1977-05-25", 8.2);
+        MovieCatalog.Row row = catalog.put(movie);
+        assertTrue(MovieRecords.isSameContent(movie, row));
+        assertTrue(MovieRecords.isSameContent(movie, catalog.get(42)));
+        assertTrue(MovieRecords.isSameContent(movie, catalog.get(42, TestMovie.FACTORY)));
+        assertNull(catalog.get(7));
+        assertNull(catalog.get(7, TestMovie.FACTORY));
+    }
+
+    @Test
+    public void releaseDates_outOfTheApiFormatKeptAsIs() {
+        MovieCatalog catalog = new MovieCatalog();
+        assertEquals("2016", catalog.put(movieReleased(1, "2016")).getReleaseDate());
+        assertEquals("0000-00-00", catalog.put(movieReleased(2, "0000-00-00")).getReleaseDate());
+        assertEquals("2016-08-03", catalog.put(movieReleased(3, "2016-08-03")).getReleaseDate());
+        assertNull(catalog.put(movieReleased(4, null)).getReleaseDate());
+    }
+
+    @Test
+    public void sameContent_keepsItsRow() {
+        MovieCatalog catalog = new MovieCatalog();
+        MovieCatalog.Row row = catalog.put(TestMovie.of(1, "Star Wars", "Overview", 8));
+        assertEquals(row, catalog.put(TestMovie.of(1, "Star Wars", "Overview", 8)));
+        assertEquals(1, catalog.size());
+        assertEquals(1, catalog.getMovieCount());
+    }
+
+    @Test
+    public void changedContent_getsANewRowSharingItsStrings() {
+        MovieCatalog catalog = new MovieCatalog();
+        MovieCatalog.Row previous = catalog.put(TestMovie.of(1, "Star Wars", "Overview", 8));
+        int strings = catalog.getStringCount();
+        MovieCatalog.Row latest = catalog.put(TestMovie.of(1, "Star Wars", "Overview", 9));
+        assertNotEquals(previous, latest);
+        assertEquals(2, catalog.size());
+        assertEquals(1, catalog.getMovieCount());
+        // Only the vote changed, no new string.
+        assertEquals(strings, catalog.getStringCount());
+        // Rows never change, the previous one keeps its content.
+        assertEquals(8, previous.getVoteAverage(), 0);
+        assertEquals(9, catalog.get(1).getVoteAverage(), 0);
+    }
+
+    @Test
+    public void manyMovies_foundById() {
+        MovieCatalog catalog = new MovieCatalog(4);
+        for (int id = 0; id < 5000; id += 5) {
+            catalog.put(TestMovie.of(id, "Movie " + id, "Shared overview", id % 10));
+        }
+        assertEquals(1000, catalog.getMovieCount());
+        for (int id = 0; id < 5000; id++) {
+            assertEquals(id % 5 == 0, catalog.contains(id));
+        }
+        assertEquals("Movie 2500", catalog.get(2500).getOriginalTitle());
+    }
+
+    @Test
+    public void compact_keepsTheLatestRowsOfTheListedMovies() {
+        MovieCatalog catalog = new MovieCatalog();
+        for (int id = 1; id <= 10; id++) {
+            catalog.put(TestMovie.of(id, "Movie " + id, "Overview " + id, 5));
+        }
+        catalog.put(TestMovie.of(3, "Movie 3", "Overview 3", 6));
+        MovieCatalog.Row unlistedRow = catalog.get(4);
+
+        MovieCatalog compacted = catalog.compact(new int[]{3, 5, 99});
+        assertEquals(2, compacted.size());
+        assertEquals(2, compacted.getMovieCount());
+        assertEquals(6, compacted.get(3).getVoteAverage(), 0);
+        assertEquals("Overview 5", compacted.get(5).getOverView());
+        assertFalse(compacted.contains(4));
+        assertFalse(compacted.contains(99));
+        // Strings of the dropped rows are gone too: paths, title and overview of the two movies.
+        assertEquals(8, compacted.getStringCount());
+
+        // The previous catalog and its views are left as is.
+        assertEquals(11, catalog.size());
+        assertEquals("Movie 4", unlistedRow.getOriginalTitle());
+    }
+
+    private static TestMovie movieReleased(int id, String releaseDate) {
+        return new TestMovie(id, null, null, "Movie " + id, null, releaseDate, 5);
+    }
+}
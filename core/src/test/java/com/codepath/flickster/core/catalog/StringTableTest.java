@@ -0,0 +1,57 @@
+package com.codepath.flickster.core.catalog;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StringTableTest {
+
+    @Test
+    public void equalStrings_shareAnIndex() {
+        StringTable table = new StringTable(4, 16);
+        int index = table.add("Star Wars");
+        assertEquals(index, table.add(new String("Star Wars")));
+        assertNotEquals(index, table.add("Star Trek"));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void strings_readBackPastGrowth() {
+        StringTable table = new StringTable(1, 1);
+        int[] indexes = new int[1000];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = table.add("movie " + i);
+        }
+        assertEquals(1000, table.size());
+        for (int i = 0; i < indexes.length; i++) {
+            assertEquals("movie " + i, table.get(indexes[i]));
+            assertEquals(indexes[i], table.add("movie " + i));
+        }
+    }
+
+    @Test
+    public void emptyAndNull_kept() {
+        StringTable table = new StringTable(4, 16);
+        int empty = table.add("");
+        assertEquals("", table.get(empty));
+        assertEquals(StringTable.NULL, table.add(null));
+        assertNull(table.get(StringTable.NULL));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void matches_comparesWithoutCreating() {
+        StringTable table = new StringTable(4, 16);
+        int index = table.add("Stardust");
+        assertTrue(table.matches(index, "Stardust"));
+        assertFalse(table.matches(index, "Stardus"));
+        assertFalse(table.matches(index, "Stardusk"));
+        assertFalse(table.matches(index, null));
+        assertTrue(table.matches(StringTable.NULL, null));
+        assertFalse(table.matches(StringTable.NULL, "Stardust"));
+    }
+}
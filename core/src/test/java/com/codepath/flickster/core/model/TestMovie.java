@@ -0,0 +1,84 @@
+package com.codepath.flickster.core.model;
+
+/**
+ * Plain movie model for the tests, only equal to itself.
+ *
+ * @author yvastavaus.
+ */
+public class TestMovie implements MovieRecord {
+
+    public static final MovieFactory<TestMovie> FACTORY = new MovieFactory<TestMovie>() {
+        @Override
+        public TestMovie create(int id, String posterPath, String backdropPath, String originalTitle,
+                                String overView, String releaseDate, double voteAverage) {
+            return new TestMovie(id, posterPath, backdropPath, originalTitle, overView, releaseDate, voteAverage);
+        }
+    };
+
+    private final int id;
+    private final String posterPath;
+    private final String backdropPath;
+    private final String originalTitle;
+    private final String overView;
+    private final String releaseDate;
+    private final double voteAverage;
+
+    public TestMovie(int id, String posterPath, String backdropPath, String originalTitle,
+                     String overView, String releaseDate, double voteAverage) {
+        this.id = id;
+        this.posterPath = posterPath;
+        this.backdropPath = backdropPath;
+        this.originalTitle = originalTitle;
+        this.overView = overView;
+        this.releaseDate = releaseDate;
+        this.voteAverage = voteAverage;
+    }
+
+    /**
+     * @return a movie with the given title and overview, other fields derived from the id.
+     */
+    public static TestMovie of(int id, String originalTitle, String overView, double voteAverage) {
+        return new TestMovie(id, "/poster" + id + ".jpg", "/backdrop" + id + ".jpg", originalTitle, overView,
+                "2016-08-03", voteAverage);
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String getRawPosterPath() {
+        return posterPath;
+    }
+
+    @Override
+    public String getRawBackdropPath() {
+        return backdropPath;
+    }
+
+    @Override
+    public String getOriginalTitle() {
+        return originalTitle;
+    }
+
+    @Override
+    public String getOverView() {
+        return overView;
+    }
+
+    @Override
+    public String getReleaseDate() {
+        return releaseDate;
+    }
+
+    @Override
+    public double getVoteAverage() {
+        return voteAverage;
+    }
+
+    @Override
+    public String toString() {
+        return "TestMovie[" + id + ", " + originalTitle + "]";
+    }
+}
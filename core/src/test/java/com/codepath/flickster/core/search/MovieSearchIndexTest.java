@@ -0,0 +1,104 @@
+package com.codepath.flickster.core.search;
+
+import com.codepath.flickster.core.model.TestMovie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MovieSearchIndexTest {
+
+    private static final TestMovie STAR_WARS = TestMovie.of(1, "Star Wars", "A galaxy far, far away.", 8);
+    private static final TestMovie STARDUST = TestMovie.of(2, "Stardust", "A fallen star.", 7);
+    private static final TestMovie STAR_TREK = TestMovie.of(3, "Star Trek", "Space, the final frontier.", 9);
+    private static final TestMovie POKEMON = TestMovie.of(4, "Pokémon: The Movie", "Gotta catch 'em all!", 5);
+
+    private MovieSearchIndex<TestMovie> index;
+
+    @Before
+    public void setUp() {
+        index = new MovieSearchIndex<>();
+        index.addAll(Arrays.asList(STAR_WARS, STARDUST, STAR_TREK, POKEMON));
+    }
+
+    @Test
+    public void lastWord_matchesAsPrefix() {
+        assertEquals(Arrays.asList(STAR_TREK, STAR_WARS, STARDUST), index.search("sta"));
+        assertEquals(Arrays.asList(STAR_WARS), index.search("star w"));
+    }
+
+    @Test
+    public void completeWord_matchesWholeWordsOnly() {
+        // Whole title words first, then the overview of Stardust.
+        assertEquals(Arrays.asList(STAR_TREK, STAR_WARS, STARDUST), index.search("star "));
+        assertTrue(index.search("stardus ").isEmpty());
+    }
+
+    @Test
+    public void titleMatch_ranksBeforeOverviewMatch() {
+        TestMovie starInOverview = TestMovie.of(5, "Galaxy Quest", "A star of a cancelled show.", 10);
+        index.addAll(Arrays.asList(starInOverview));
+        // Despite the best vote average.
+        List<TestMovie> results = index.search("star ");
+        assertTrue(results.indexOf(starInOverview) > results.indexOf(STAR_WARS));
+    }
+
+    @Test
+    public void everyWord_mustMatch() {
+        assertEquals(Arrays.asList(STAR_TREK), index.search("star frontier"));
+        assertTrue(index.search("star pokemon").isEmpty());
+    }
+
+    @Test
+    public void caseAndAccents_ignored() {
+        assertEquals(Arrays.asList(POKEMON), index.search("POKEMON"));
+        assertEquals(Arrays.asList(POKEMON), index.search("poké"));
+    }
+
+    @Test
+    public void queryWithoutWords_matchesNothing() {
+        assertTrue(index.search("").isEmpty());
+        assertTrue(index.search(" !? ").isEmpty());
+    }
+
+    @Test
+    public void update_reindexesChangedMovies() {
+        TestMovie renamed = TestMovie.of(2, "Moonlight", "A fallen moon.", 7);
+        index.update(Arrays.asList(STAR_WARS, renamed, STAR_TREK, POKEMON));
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList(renamed), index.search("moon"));
+        assertEquals(Arrays.asList(STAR_TREK, STAR_WARS), index.search("star"));
+        assertTrue(index.search("stardust").isEmpty());
+    }
+
+    @Test
+    public void update_keepsUnchangedMovies() {
+        index.update(Arrays.asList(STAR_WARS, STARDUST, STAR_TREK, POKEMON));
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList(STAR_TREK, STAR_WARS, STARDUST), index.search("star"));
+    }
+
+    @Test
+    public void update_removesMissingMovies() {
+        index.update(Arrays.asList(STAR_WARS, POKEMON));
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList(STAR_WARS), index.search("star"));
+        assertTrue(index.search("frontier").isEmpty());
+
+        index.update(new ArrayList<TestMovie>());
+        assertEquals(0, index.size());
+        assertTrue(index.search("star").isEmpty());
+    }
+
+    @Test
+    public void tokenize_splitsLowerCasesAndStripsAccents() {
+        assertEquals(Arrays.asList("pokemon", "go"), MovieSearchIndex.tokenize("Pokémon: Go!"));
+        assertTrue(MovieSearchIndex.tokenize(null).isEmpty());
+    }
+}
@@ -0,0 +1,164 @@
+package com.codepath.flickster.core.snapshot;
+
+import com.codepath.flickster.core.model.MovieRecords;
+import com.codepath.flickster.core.model.TestMovie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CatalogSnapshotTest {
+
+    private static final List<TestMovie> MOVIES = Arrays.asList(
+            new TestMovie(1, "/star_wars.jpg", null, "Star Wars", "A galaxy far, far away.", "1977-05-25", 8.2),
+            new TestMovie(2, null, "/shared.jpg", "Pokémon: The Movie", "Gotta catch 'em all!", null, 5),
+            new TestMovie(3, "", "/shared.jpg", "Star Wars", "", "2016", 0));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_keepsMoviesAndPaging() throws IOException {
+        File file = folder.newFile("now_playing.snap");
+        CatalogSnapshot.write(file, MOVIES, 2, 40, 1470000000000L);
+
+        CatalogSnapshot snapshot = CatalogSnapshot.map(file);
+        assertEquals(MOVIES.size(), snapshot.size());
+        assertEquals(2, snapshot.getPage());
+        assertEquals(40, snapshot.getTotalPages());
+        assertEquals(1470000000000L, snapshot.getFetchedAt());
+        for (int i = 0; i < MOVIES.size(); i++) {
+            assertTrue(MovieRecords.isSameContent(MOVIES.get(i), snapshot.get(i)));
+            assertTrue(MovieRecords.isSameContent(MOVIES.get(i), snapshot.getRows().get(i)));
+        }
+        assertEquals(snapshot.get(1), snapshot.getRows().get(1));
+    }
+
+    @Test
+    public void emptyList_roundTrips() throws IOException {
+        File file = folder.newFile("empty.snap");
+        CatalogSnapshot.write(file, new ArrayList<TestMovie>(), 1, 1, 0);
+        CatalogSnapshot snapshot = CatalogSnapshot.map(file);
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.getRows().isEmpty());
+    }
+
+    @Test
+    public void write_replacesThePreviousSnapshot() throws IOException {
+        File file = folder.newFile("popular.snap");
+        CatalogSnapshot.write(file, MOVIES, 1, 1, 0);
+        CatalogSnapshot previous = CatalogSnapshot.map(file);
+        CatalogSnapshot.write(file, MOVIES.subList(0, 1), 1, 1, 0);
+
+        assertEquals(1, CatalogSnapshot.map(file).size());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        // Views of the previous mapping are still readable.
+        assertEquals("Star Wars", previous.get(2).getOriginalTitle());
+    }
+
+    @Test
+    public void strings_writtenOnce() {
+        List<TestMovie> twice = new ArrayList<>(MOVIES);
+        twice.addAll(MOVIES);
+        assertEquals(heapSize(CatalogSnapshot.toBytes(MOVIES, 1, 1, 0)),
+                heapSize(CatalogSnapshot.toBytes(twice, 1, 1, 0)));
+    }
+
+    @Test
+    public void corruptedHeap_failsChecksum() throws IOException {
+        byte[] bytes = CatalogSnapshot.toBytes(MOVIES, 1, 1, 0);
+        bytes[bytes.length - 1] ^= 1;
+        assertDoesNotOpen(bytes, "checksum");
+    }
+
+    @Test
+    public void corruptedHeader_failsChecksum() throws IOException {
+        byte[] bytes = CatalogSnapshot.toBytes(MOVIES, 1, 1, 0);
+        // Total pages.
+        bytes[23] ^= 1;
+        assertDoesNotOpen(bytes, "checksum");
+    }
+
+    @Test
+    public void otherVersion_doesNotOpen() throws IOException {
+        byte[] bytes = CatalogSnapshot.toBytes(MOVIES, 1, 1, 0);
+        ByteBuffer.wrap(bytes).putInt(4, CatalogSnapshot.VERSION + 1);
+        assertDoesNotOpen(bytes, "version");
+    }
+
+    @Test
+    public void otherFile_doesNotOpen() throws IOException {
+        byte[] bytes = CatalogSnapshot.toBytes(MOVIES, 1, 1, 0);
+        bytes[0] = '{';
+        assertDoesNotOpen(bytes, "not a catalog snapshot");
+    }
+
+    @Test
+    public void truncatedFile_doesNotOpen() throws IOException {
+        byte[] bytes = CatalogSnapshot.toBytes(MOVIES, 1, 1, 0);
+        assertDoesNotOpen(Arrays.copyOf(bytes, bytes.length - 1), "truncated");
+        assertDoesNotOpen(Arrays.copyOf(bytes, bytes.length + 1), "truncated");
+    }
+
+    @Test
+    public void fileShorterThanTheHeader_doesNotMap() throws IOException {
+        byte[] bytes = CatalogSnapshot.toBytes(MOVIES, 1, 1, 0);
+        File file = folder.newFile("short.snap");
+        writeFile(file, Arrays.copyOf(bytes, 20));
+        try {
+            CatalogSnapshot.map(file);
+            fail("mapped a truncated snapshot");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("size"));
+        }
+    }
+
+    @Test
+    public void truncatedFile_doesNotMap() throws IOException {
+        byte[] bytes = CatalogSnapshot.toBytes(MOVIES, 1, 1, 0);
+        File file = folder.newFile("truncated.snap");
+        writeFile(file, Arrays.copyOf(bytes, bytes.length / 2));
+        try {
+            CatalogSnapshot.map(file);
+            fail("mapped a truncated snapshot");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("truncated"));
+        }
+    }
+
+    private static void assertDoesNotOpen(byte[] bytes, String reason) {
+        try {
+            CatalogSnapshot.open(ByteBuffer.wrap(bytes));
+            fail("opened an invalid snapshot, expected: " + reason);
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(reason));
+        }
+    }
+
+    private static int heapSize(byte[] snapshot) {
+        // Last field of the header.
+        return ByteBuffer.wrap(snapshot).getInt(32);
+    }
+
+    private static void writeFile(File file, byte[] bytes) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+}